@@ -0,0 +1,137 @@
+package com.tvscs.imagevalidator.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tvscs.imagevalidator.service.blur.BrennerMetric;
+import com.tvscs.imagevalidator.service.blur.FftHighFrequencyMetric;
+import com.tvscs.imagevalidator.service.blur.SharpnessMetric;
+import com.tvscs.imagevalidator.service.blur.StreamingLaplacian;
+import com.tvscs.imagevalidator.service.blur.TenengradMetric;
+import com.tvscs.imagevalidator.service.blur.VectorLaplacian;
+
+/**
+ * Sharpness engines and metrics on an already decoded grayscale raster (decode cost is the same for all and excluded),
+ * plus decode-inclusive JPEG timings for the streaming engine against OpenCV decode + fused pass.
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SharpnessBenchmark {
+
+    // Typical document scan and phone capture sizes
+    @Param({"2480x3508", "4000x6000"})
+    private String size;
+
+    private Mat gray;
+    private MatOfByte jpeg;
+    private ByteBuffer jpegBuffer;
+
+    // Scores only; thresholds are not injected outside Spring
+    private final SharpnessMetric tenengrad = new TenengradMetric();
+    private final SharpnessMetric brenner = new BrennerMetric();
+    private final SharpnessMetric fft = new FftHighFrequencyMetric();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        nu.pattern.OpenCV.loadLocally();
+        String[] dims = size.split("x");
+        gray = new Mat(Integer.parseInt(dims[1]), Integer.parseInt(dims[0]), CvType.CV_8UC1);
+        Core.randu(gray, 0, 256);
+        Imgproc.putText(gray, "SAMPLE", new Point(100, gray.rows() / 2.0), Imgproc.FONT_HERSHEY_SIMPLEX, 20,
+                new Scalar(0), 40);
+        Imgproc.GaussianBlur(gray, gray, new Size(0, 0), 1.0);
+        jpeg = new MatOfByte();
+        Imgcodecs.imencode(".jpg", gray, jpeg);
+        byte[] bytes = jpeg.toArray();
+        jpegBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gray.release();
+        jpeg.release();
+    }
+
+    @Benchmark
+    public double opencv() {
+        return ImageValidationService.computeLaplacianVariance(gray);
+    }
+
+    // Previous opencv engine: CV_64F Laplacian image + meanStdDev, kept as the native reference
+    @Benchmark
+    public double opencvFilter() {
+        Mat laplacian = new Mat();
+        Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+        MatOfDouble mean = new MatOfDouble();
+        MatOfDouble std = new MatOfDouble();
+        Core.meanStdDev(laplacian, mean, std);
+        double variance = Math.pow(std.get(0, 0)[0], 2);
+        laplacian.release();
+        mean.release();
+        std.release();
+        return variance;
+    }
+
+    @Benchmark
+    public double vector() {
+        return VectorLaplacian.variance(gray);
+    }
+
+    @Benchmark
+    public double tenengrad() {
+        return tenengrad.score(gray);
+    }
+
+    @Benchmark
+    public double brenner() {
+        return brenner.score(gray);
+    }
+
+    @Benchmark
+    public double fft() {
+        return fft.score(gray);
+    }
+
+    @Benchmark
+    public double jpegDecodeOpencv() {
+        Mat decoded = Imgcodecs.imdecode(jpeg, Imgcodecs.IMREAD_GRAYSCALE);
+        double variance = ImageValidationService.computeLaplacianVariance(decoded);
+        decoded.release();
+        return variance;
+    }
+
+    @Benchmark
+    public double jpegStreaming() throws IOException {
+        return StreamingLaplacian.variance(jpegBuffer, false);
+    }
+}
@@ -2,8 +2,10 @@ package com.tvscs.imagevalidator;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ImageValidatorApplication {
     public static void main(String[] args) {
         SpringApplication.run(ImageValidatorApplication.class, args);
@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,9 +12,11 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.tvscs.imagevalidator.domain.dto.ValidationResponse;
+import com.tvscs.imagevalidator.exceptions.MemoryBudgetExceededException;
 import com.tvscs.imagevalidator.service.ImageValidationService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -23,11 +26,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.DecimalMin;
 
 /**
- * REST Controller for the /api/validate endpoint.
- * Handles multipart uploads and returns JSON with validation results.
+ * REST Controller for the /api/validate endpoints.
+ * Handles multipart uploads and raw image bodies and returns JSON with validation results.
  */
 @RestController
 @Validated
@@ -45,7 +49,7 @@ public class ImageValidationController {
     /**
      * POST /api/validate
      * Required: image (file), x_inches (double), y_inches (double)
-     * Optional: target_dpi (int, defaults to 300)
+     * Optional: target_dpi (int, defaults to 300), sharpness_metric (laplacian | tenengrad | brenner | fft)
      */
     @PostMapping(value = "/api/validate", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Validate image resolution and blurriness",
@@ -55,8 +59,10 @@ public class ImageValidationController {
                      content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
         @ApiResponse(responseCode = "400", description = "Validation failed or invalid input",
                      content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
+        @ApiResponse(responseCode = "413", description = "Image needs more decode memory than the whole budget"),
         @ApiResponse(responseCode = "500", description = "Internal server error",
-                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class)))
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
+        @ApiResponse(responseCode = "503", description = "Decode memory budget exhausted; retry after the Retry-After delay")
     })
     public ResponseEntity<ValidationResponse> validateImage(
             @Parameter(description = "Image file to validate", required = true)
@@ -66,22 +72,19 @@ public class ImageValidationController {
             @Parameter(description = "Target height in inches", required = true)
             @RequestParam("y_inches") @DecimalMin(value = "0.1", message = "y_inches must be greater than 0") double yInches,
             @Parameter(description = "Target DPI (optional, defaults to 300)")
-            @RequestParam(value = "target_dpi", required = false) Integer targetDpi) {
+            @RequestParam(value = "target_dpi", required = false) Integer targetDpi,
+            @Parameter(description = "Sharpness metric (optional): laplacian, tenengrad, brenner or fft; defaults to app.image.sharpness-metric")
+            @RequestParam(value = "sharpness_metric", required = false) String sharpnessMetric) {
         try {
             log.info("Received validation request for file: {}, size: {}", file.getOriginalFilename(), file.getSize());
-            ImageValidationService.ValidationResult result = validationService.validateImage(file, xInches, yInches, targetDpi);
+            ImageValidationService.ValidationResult result = validationService.validateImage(file, xInches, yInches, targetDpi, sharpnessMetric);
 
-            ValidationResponse response = new ValidationResponse(
-                result.valid ? "valid" : "invalid",
-                result.message,
-                result.suggestion,
-                result.effectiveDpi,
-                result.widthPct,
-                result.heightPct
-            );
+            ValidationResponse response = toResponse(result);
 
             HttpStatus status = result.valid ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
             return ResponseEntity.status(status).body(response);
+        } catch (MemoryBudgetExceededException e) {
+            throw e;
         } catch (IOException e) {
             log.error("IO error during image validation", e);
             ValidationResponse errorResponse = new ValidationResponse(
@@ -106,4 +109,117 @@ public class ImageValidationController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
+
+    /**
+     * POST /api/validate/stream
+     * Body: raw image bytes (image/* or application/octet-stream)
+     * Required: x_inches (double), y_inches (double); Optional: target_dpi (int, defaults to 300), sharpness_metric
+     * The header is checked while the body arrives; a too-small image is rejected without reading the rest.
+     */
+    @PostMapping(value = "/api/validate/stream", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Validate a raw image body with early rejection",
+               description = "Streams the image as the request body and answers as soon as the header shows insufficient resolution.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Validation successful",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Validation failed or invalid input",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
+        @ApiResponse(responseCode = "413", description = "Body exceeds the maximum upload size, or the image needs more decode memory than the whole budget"),
+        @ApiResponse(responseCode = "500", description = "Internal server error",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ValidationResponse.class))),
+        @ApiResponse(responseCode = "503", description = "Decode memory budget exhausted; retry after the Retry-After delay")
+    })
+    public ResponseEntity<ValidationResponse> validateImageStream(
+            HttpServletRequest request,
+            @Parameter(description = "Target width in inches", required = true)
+            @RequestParam("x_inches") @DecimalMin(value = "0.1", message = "x_inches must be greater than 0") double xInches,
+            @Parameter(description = "Target height in inches", required = true)
+            @RequestParam("y_inches") @DecimalMin(value = "0.1", message = "y_inches must be greater than 0") double yInches,
+            @Parameter(description = "Target DPI (optional, defaults to 300)")
+            @RequestParam(value = "target_dpi", required = false) Integer targetDpi,
+            @Parameter(description = "Sharpness metric (optional): laplacian, tenengrad, brenner or fft; defaults to app.image.sharpness-metric")
+            @RequestParam(value = "sharpness_metric", required = false) String sharpnessMetric) {
+        try {
+            log.info("Received streamed validation request, content type: {}, length: {}", request.getContentType(), request.getContentLengthLong());
+            ImageValidationService.ValidationResult result = validationService.validateStream(
+                request.getInputStream(), request.getContentLengthLong(), request.getContentType(), xInches, yInches, targetDpi,
+                sharpnessMetric);
+
+            HttpStatus status = result.valid ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+            if (result.earlyAbort) {
+                // Unread body remains on the connection: close it instead of draining it for keep-alive
+                builder.header(HttpHeaders.CONNECTION, "close");
+            }
+            return builder.body(toResponse(result));
+        } catch (MaxUploadSizeExceededException | MemoryBudgetExceededException e) {
+            throw e;
+        } catch (IOException e) {
+            log.error("IO error during streamed image validation", e);
+            ValidationResponse errorResponse = new ValidationResponse(
+                "error",
+                "Failed to process image: " + e.getMessage(),
+                null,
+                null,
+                null,
+                null
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during streamed image validation", e);
+            ValidationResponse errorResponse = new ValidationResponse(
+                "error",
+                "Unexpected error: " + e.getMessage(),
+                null,
+                null,
+                null,
+                null
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    private ValidationResponse toResponse(ImageValidationService.ValidationResult result) {
+        ValidationResponse response = new ValidationResponse(
+            result.valid ? "valid" : "invalid",
+            result.message,
+            result.suggestion,
+            result.effectiveDpi,
+            result.widthPct,
+            result.heightPct
+        );
+        response.setFormat(result.format);
+        if (result.declaredDpi > 0) {
+            response.setDeclaredDpi(result.declaredDpi);
+        }
+        if (result.sharpnessEngine != null) {
+            response.setBlurVariance(result.blurVariance);
+            response.setBlurThreshold(result.blurThreshold);
+            response.setBlurScale(result.blurScale > 0 ? result.blurScale : null);
+            response.setSharpnessEngine(result.sharpnessEngine);
+            response.setSharpnessMetric(result.sharpnessMetric);
+            if (result.blurSampledFraction >= 0) {
+                response.setBlurSampledFraction(result.blurSampledFraction);
+            }
+            if (result.blurRoiFraction >= 0) {
+                response.setBlurRoiFraction(result.blurRoiFraction);
+            }
+            if (result.blurDecisionLevel >= 0) {
+                response.setBlurDecisionLevel(result.blurDecisionLevel);
+            }
+        }
+        if (result.tileColumns > 0) {
+            response.setBlurTileGrid(result.tileColumns + "x" + result.tileRows);
+            response.setBlurTileVariances(result.tileVariances);
+            if (result.sharpTileFraction >= 0) {
+                response.setBlurTileMin(result.tileMinVariance);
+                response.setBlurTileP10(result.tileP10Variance);
+                response.setSharpTileFraction(result.sharpTileFraction);
+            }
+        }
+        if (result.earlyAbort) {
+            response.setEarlyAbort(true);
+        }
+        return response;
+    }
 }
\ No newline at end of file
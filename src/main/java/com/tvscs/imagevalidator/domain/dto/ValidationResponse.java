@@ -1,5 +1,7 @@
 package com.tvscs.imagevalidator.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,14 +12,37 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ValidationResponse {
     private String status;
+    private String format;
     private String message;
     private String suggestion;
     private Double effectiveDpi;
     private Double widthPct;
     private Double heightPct;
+    private Double blurVariance;
+    private Double blurThreshold;
+    private Integer blurScale;
+    private String sharpnessEngine;
+    private String sharpnessMetric;
+    private Double blurSampledFraction;
+    private Double blurRoiFraction;
+    private Integer blurDecisionLevel;
+    private Double declaredDpi;
+    private Boolean earlyAbort;
+    private String blurTileGrid;
+    private Double blurTileMin;
+    private Double blurTileP10;
+    private Double sharpTileFraction;
+    private Double[][] blurTileVariances;
 
-    public ValidationResponse(String error, String s, Object o, Object o1, Object o2, Object o3) {
+    public ValidationResponse(String status, String message, String suggestion, Double effectiveDpi, Double widthPct, Double heightPct) {
+        this.status = status;
+        this.message = message;
+        this.suggestion = suggestion;
+        this.effectiveDpi = effectiveDpi;
+        this.widthPct = widthPct;
+        this.heightPct = heightPct;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.tvscs.imagevalidator.exceptions;
+
+/**
+ * Thrown when a request's predicted decode memory exceeds the whole budget, so waiting could never admit it;
+ * answered with HTTP 413 and no Retry-After.
+ */
+public class DecodeTooLargeException extends MemoryBudgetExceededException {
+
+    public DecodeTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.tvscs.imagevalidator.exceptions;
+
+/**
+ * Thrown when a request cannot reserve its decode memory in time; answered with HTTP 503 and Retry-After.
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,22 +1,53 @@
 package com.tvscs.imagevalidator.service;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Predicate;
 
-import javax.imageio.ImageIO;
-
-import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.tvscs.imagevalidator.service.blur.DctSharpnessEstimator;
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.LaplacianBatcher;
+import com.tvscs.imagevalidator.service.blur.LaplacianVarianceMetric;
+import com.tvscs.imagevalidator.service.blur.SampledLaplacian;
+import com.tvscs.imagevalidator.service.blur.SharpnessEngine;
+import com.tvscs.imagevalidator.service.blur.SharpnessMap;
+import com.tvscs.imagevalidator.service.blur.SharpnessMetric;
+import com.tvscs.imagevalidator.service.blur.SharpnessMetricRegistry;
+import com.tvscs.imagevalidator.service.blur.SharpnessRoi;
+import com.tvscs.imagevalidator.service.blur.StreamingLaplacian;
+import com.tvscs.imagevalidator.service.blur.TiledSharpness;
+import com.tvscs.imagevalidator.service.blur.VectorLaplacian;
+import com.tvscs.imagevalidator.service.compute.ComputeScheduler;
+import com.tvscs.imagevalidator.service.compute.MemoryBudget;
+import com.tvscs.imagevalidator.service.io.MatScratchPool;
+import com.tvscs.imagevalidator.service.io.NativeScope;
+import com.tvscs.imagevalidator.service.io.UploadBufferPool;
+import com.tvscs.imagevalidator.service.io.UploadData;
+import com.tvscs.imagevalidator.service.probe.ImageDimensions;
+import com.tvscs.imagevalidator.service.probe.ImageFormat;
+import com.tvscs.imagevalidator.service.probe.ImageHeaderParser;
+import com.tvscs.imagevalidator.service.probe.ImageHeaderProbe;
+import com.tvscs.imagevalidator.service.probe.ImageMetadata;
+import com.tvscs.imagevalidator.service.probe.JpegMetadataReader;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
 /**
  * Service for validating uploaded images on resolution (target inches + DPI) and blurriness (Laplacian variance).
  * Returns a structured ValidationResult for flexible error handling.
@@ -26,14 +57,102 @@ public class ImageValidationService {
 
     private static final Logger log = LoggerFactory.getLogger(ImageValidationService.class);
 
+    // Decoded bytes charged per encoded byte when the header gives no dimensions (grayscale rarely expands further)
+    private static final int UNKNOWN_DIMENSIONS_EXPANSION = 16;
+
+    private final UploadBufferPool uploadBufferPool;
+
+    private final MeterRegistry meterRegistry;
+
+    private final SharpnessMetricRegistry sharpnessMetrics;
+
+    private final ComputeScheduler computeScheduler;
+
+    private final LaplacianBatcher laplacianBatcher;
+
+    private final MatScratchPool matScratchPool;
+
+    private final MemoryBudget memoryBudget;
+
     @Value("${app.image.default-target-dpi}")
     private int defaultTargetDpi;
 
     @Value("${app.image.min-pct}")
     private double minPct;
 
-    @Value("${app.image.max-blur-variance}")
-    private double maxBlurVariance;
+    @Value("${app.image.sharpness-engine}")
+    private String sharpnessEngine;
+
+    @Value("${app.image.dct-calibration}")
+    private double dctCalibration;
+
+    @Value("${app.image.thumbnail-prescreen-enabled}")
+    private boolean thumbnailPrescreenEnabled;
+
+    @Value("${app.image.thumbnail-reject-variance}")
+    private double thumbnailRejectVariance;
+
+    @Value("${app.image.blur-decode-mode}")
+    private String blurDecodeMode;
+
+    @Value("${app.image.blur-reduced-min-pixels}")
+    private long blurReducedMinPixels;
+
+    @Value("${app.image.blur-reduced-max-scale}")
+    private int blurReducedMaxScale;
+
+    @Value("${app.image.blur-reduced-factors}")
+    private double[] blurReducedFactors;
+
+    // Tiles per side for the sharpness map (0 = single global variance)
+    @Value("${app.image.blur-tile-grid}")
+    private int blurTileGrid;
+
+    @Value("${app.image.blur-tile-min-contrast}")
+    private double blurTileMinContrast;
+
+    @Value("${app.image.blur-tile-min-sharp-fraction}")
+    private double blurTileMinSharpFraction;
+
+    // Progressive mode: per-level decision margins at 1/2, 1/4, 1/8 scale, and the smallest level worth scoring
+    @Value("${app.image.blur-pyramid-margins}")
+    private double[] blurPyramidMargins;
+
+    @Value("${app.image.blur-pyramid-min-pixels}")
+    private long blurPyramidMinPixels;
+
+    // Sampled Laplacian variance with a confidence-bounded early decision (Laplacian metric, untiled only)
+    @Value("${app.image.blur-sampling-enabled}")
+    private boolean blurSamplingEnabled;
+
+    @Value("${app.image.blur-sampling-z}")
+    private double blurSamplingZ;
+
+    @Value("${app.image.blur-sampling-min-rows}")
+    private int blurSamplingMinRows;
+
+    @Value("${app.image.blur-sampling-max-fraction}")
+    private double blurSamplingMaxFraction;
+
+    // Region of interest: edge-density grid on a downscaled copy; only the textured region is scored
+    @Value("${app.image.blur-roi-enabled}")
+    private boolean blurRoiEnabled;
+
+    @Value("${app.image.blur-roi-grid}")
+    private int blurRoiGrid;
+
+    @Value("${app.image.blur-roi-edge-threshold}")
+    private double blurRoiEdgeThreshold;
+
+    @Value("${app.image.blur-roi-min-density}")
+    private double blurRoiMinDensity;
+
+    @Value("${app.image.blur-roi-max-fraction}")
+    private double blurRoiMaxFraction;
+
+    // Streamed (raw body) uploads share the multipart size limit
+    @Value("${spring.servlet.multipart.max-file-size}")
+    private DataSize maxFileSize;
 
     // Static initialization for OpenCV (load native library once on startup)
     static {
@@ -42,6 +161,28 @@ public class ImageValidationService {
         log.info("OpenCV library loaded successfully");
     }
 
+    public ImageValidationService(UploadBufferPool uploadBufferPool, MeterRegistry meterRegistry,
+                                  SharpnessMetricRegistry sharpnessMetrics, ComputeScheduler computeScheduler,
+                                  LaplacianBatcher laplacianBatcher, MatScratchPool matScratchPool,
+                                  MemoryBudget memoryBudget) {
+        this.uploadBufferPool = uploadBufferPool;
+        this.meterRegistry = meterRegistry;
+        this.sharpnessMetrics = sharpnessMetrics;
+        this.computeScheduler = computeScheduler;
+        this.laplacianBatcher = laplacianBatcher;
+        this.matScratchPool = matScratchPool;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @PostConstruct
+    void checkSharpnessEngine() {
+        SharpnessEngine engine = SharpnessEngine.fromProperty(sharpnessEngine);
+        if (!engine.isAvailable()) {
+            log.warn("Sharpness engine {} is unavailable (start the JVM with --add-modules jdk.incubator.vector); using opencv",
+                    engine.id());
+        }
+    }
+
     /**
      * Inner DTO for validation results: Includes status, metrics, and suggestions for frontend.
      */
@@ -52,6 +193,23 @@ public class ImageValidationService {
         public double widthPct = -1.0;
         public double heightPct = -1.0;
         public String suggestion = "";
+        public double blurVariance = -1.0;
+        public double blurThreshold = -1.0;
+        public int blurScale = -1;
+        public String sharpnessEngine = null;
+        public String sharpnessMetric = null;
+        public double blurSampledFraction = -1.0;
+        public double blurRoiFraction = -1.0;
+        public int blurDecisionLevel = -1;
+        public double declaredDpi = -1.0;
+        public String format = ImageFormat.UNKNOWN.id();
+        public boolean earlyAbort = false;
+        public int tileColumns = 0;
+        public int tileRows = 0;
+        public Double[][] tileVariances = null;
+        public double tileMinVariance = -1.0;
+        public double tileP10Variance = -1.0;
+        public double sharpTileFraction = -1.0;
     }
 
     /**
@@ -64,51 +222,477 @@ public class ImageValidationService {
      * @throws IOException If file read fails.
      */
     public ValidationResult validateImage(MultipartFile file, double xInches, double yInches, Integer targetDpi) throws IOException {
+        return validateImage(file, xInches, yInches, targetDpi, null);
+    }
+
+    /**
+     * Validates the image against target physical size and DPI, scoring blur with the given metric.
+     * @param file Uploaded MultipartFile (image).
+     * @param xInches Target width in inches (>0 required).
+     * @param yInches Target height in inches (>0 required).
+     * @param targetDpi Optional target DPI (defaults to app.image.default-target-dpi).
+     * @param sharpnessMetric Optional metric id (defaults to app.image.sharpness-metric).
+     * @return ValidationResult with details.
+     * @throws IOException If file read fails.
+     */
+    public ValidationResult validateImage(MultipartFile file, double xInches, double yInches, Integer targetDpi,
+                                          String sharpnessMetric) throws IOException {
         log.debug("Starting image validation for file: {}, size: {} bytes", file.getOriginalFilename(), file.getSize());
         ValidationResult result = new ValidationResult();
+        // Latency per detected format and outcome (image.validation timer)
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            validateUpload(file, xInches, yInches, targetDpi, sharpnessMetric, result);
+            outcome = result.valid ? "valid" : "invalid";
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("image.validation", "format", result.format, "outcome", outcome));
+        }
+    }
 
+    private void validateUpload(MultipartFile file, double xInches, double yInches, Integer targetDpi,
+                                String sharpnessMetric, ValidationResult result) throws IOException {
         // Basic input validations
         if (file.isEmpty()) {
             result.valid = false;
             result.message = "File is empty";
             log.warn("Validation failed: file is empty");
-            return result;
+            return;
         }
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
+        if (xInches <= 0 || yInches <= 0) {
             result.valid = false;
-            result.message = "Invalid file type: must be an image";
-            log.warn("Validation failed: invalid content type {}", contentType);
+            result.message = "Invalid physical dimensions: must be positive inches";
+            log.warn("Validation failed: invalid dimensions x={}, y={}", xInches, yInches);
+            return;
+        }
+        SharpnessMetric metric = resolveMetric(sharpnessMetric, result);
+        if (metric == null) {
+            return;
+        }
+
+        // Format from magic bytes, before anything is buffered; Content-Type is only logged. The argument checks above
+        // come first (as validateStream's do), so a non-image upload with invalid inches gets the inches error
+        ImageFormat format;
+        try (InputStream in = file.getInputStream()) {
+            format = ImageFormat.sniff(in);
+        }
+        if (!checkFormat(format, file.getContentType(), result)) {
+            return;
+        }
+
+        // Upload is read once (direct buffer, or a read-only mapping when spilled to disk); probe and decoders read it in place
+        try (UploadData upload = uploadBufferPool.open(file)) {
+            validateImageData(upload.data(), format, file.getOriginalFilename(), xInches, yInches, targetDpi, metric, result);
+        }
+    }
+
+    /**
+     * Validates a raw (non-multipart) image body while it is still arriving.
+     * The header is parsed after every chunk; an unsupported format or insufficient resolution is answered as soon
+     * as it is known and the rest of the body is left unread ({@link ValidationResult#earlyAbort}).
+     * @param body Request body stream.
+     * @param contentLength Declared body length, or -1 if unknown.
+     * @param contentType Declared content type (for logging only).
+     * @param xInches Target width in inches (>0 required).
+     * @param yInches Target height in inches (>0 required).
+     * @param targetDpi Optional target DPI (defaults to app.image.default-target-dpi).
+     * @param sharpnessMetric Optional metric id (defaults to app.image.sharpness-metric).
+     * @return ValidationResult with details.
+     * @throws IOException If the body cannot be read.
+     */
+    public ValidationResult validateStream(InputStream body, long contentLength, String contentType, double xInches,
+                                           double yInches, Integer targetDpi, String sharpnessMetric) throws IOException {
+        log.debug("Starting streamed image validation, declared size: {} bytes", contentLength);
+        ValidationResult result = new ValidationResult();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            validateBody(body, contentLength, contentType, xInches, yInches, targetDpi, sharpnessMetric, result);
+            outcome = result.valid ? "valid" : "invalid";
             return result;
+        } finally {
+            sample.stop(meterRegistry.timer("image.validation", "format", result.format, "outcome", outcome));
         }
+    }
+
+    private void validateBody(InputStream body, long contentLength, String contentType, double xInches, double yInches,
+                              Integer targetDpi, String sharpnessMetric, ValidationResult result) throws IOException {
         if (xInches <= 0 || yInches <= 0) {
             result.valid = false;
             result.message = "Invalid physical dimensions: must be positive inches";
             log.warn("Validation failed: invalid dimensions x={}, y={}", xInches, yInches);
-            return result;
+            return;
+        }
+        SharpnessMetric metric = resolveMetric(sharpnessMetric, result);
+        if (metric == null) {
+            return;
+        }
+        int dpi = (targetDpi != null && targetDpi > 0) ? targetDpi : defaultTargetDpi;
+
+        long maxBytes = maxFileSize.toBytes() < 0 ? Long.MAX_VALUE : maxFileSize.toBytes();
+        EarlyHeaderCheck check = new EarlyHeaderCheck(xInches, yInches, dpi, result);
+        try (UploadData upload = uploadBufferPool.read(body, contentLength, maxBytes, check)) {
+            ByteBuffer data = upload.data();
+            result.earlyAbort = !upload.isComplete();
+            if (data.limit() == 0) {
+                result.valid = false;
+                result.message = "File is empty";
+                log.warn("Validation failed: file is empty");
+                return;
+            }
+            // Bodies shorter than the sniff length never reached the inspector's format check
+            ImageFormat format = check.format != null ? check.format : ImageFormat.detect(data);
+            if (!checkFormat(format, contentType, result)) {
+                return;
+            }
+            if (result.earlyAbort) {
+                // Result already holds the dimension failure
+                log.info("Rejected streamed upload from its header after {} of {} bytes", data.limit(), contentLength);
+                return;
+            }
+            validateImageData(data, format, "stream body", xInches, yInches, targetDpi, metric, result);
+        }
+    }
+
+    /**
+     * Stream inspector: detects the format and parses the header as bytes arrive, and stops the transfer as soon
+     * as the format is unsupported or the header dimensions fail {@link #checkDimensions}.
+     * Formats without a fast header parser (e.g., TIFF) are read in full and left to the regular path.
+     */
+    private final class EarlyHeaderCheck implements Predicate<ByteBuffer> {
+
+        private final double xInches;
+        private final double yInches;
+        private final int dpi;
+        private final ValidationResult result;
+        private ImageFormat format;
+        private boolean headerSeen;
+
+        EarlyHeaderCheck(double xInches, double yInches, int dpi, ValidationResult result) {
+            this.xInches = xInches;
+            this.yInches = yInches;
+            this.dpi = dpi;
+            this.result = result;
+        }
+
+        @Override
+        public boolean test(ByteBuffer received) {
+            if (format == null) {
+                if (received.limit() < ImageFormat.SNIFF_LENGTH) {
+                    return true;
+                }
+                format = ImageFormat.detect(received);
+                if (!format.isSupported()) {
+                    return false;
+                }
+            }
+            if (headerSeen) {
+                return true;
+            }
+            long packed = ImageHeaderParser.parse(received);
+            if (packed == ImageHeaderParser.NEED_MORE_DATA) {
+                return true;
+            }
+            headerSeen = true;
+            if (packed == ImageHeaderParser.UNKNOWN) {
+                return true;
+            }
+            int widthPx = ImageHeaderParser.width(packed);
+            int heightPx = ImageHeaderParser.height(packed);
+            // EXIF APP1 precedes the SOF marker, so orientation is already in the received bytes
+            if (format == ImageFormat.JPEG && JpegMetadataReader.read(received).swapsDimensions()) {
+                int swap = widthPx;
+                widthPx = heightPx;
+                heightPx = swap;
+            }
+            log.debug("Streamed header: {} {}x{} px after {} bytes", format, widthPx, heightPx, received.limit());
+            return checkDimensions(widthPx, heightPx, xInches, yInches, dpi, result);
+        }
+    }
+
+    /**
+     * Resolves the requested sharpness metric, or reports an unknown id.
+     * @param requested Metric id from the request, or null for app.image.sharpness-metric.
+     * @param result Result to fill in.
+     * @return Metric, or null if the id is unknown.
+     */
+    private SharpnessMetric resolveMetric(String requested, ValidationResult result) {
+        SharpnessMetric metric = sharpnessMetrics.resolve(requested);
+        if (metric == null) {
+            result.valid = false;
+            result.message = "Unknown sharpness metric: " + requested;
+            result.suggestion = "Use one of: " + String.join(", ", sharpnessMetrics.ids()) + ".";
+            log.warn("Validation failed: unknown sharpness metric {}", requested);
         }
+        return metric;
+    }
 
-        // Utility: Extract pixel dimensions using ImageIO (efficient for metadata)
-        byte[] bytes = file.getBytes();
-        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(bytes));
-        if (bufferedImage == null) {
+    /**
+     * Rejects content that is not a recognized or supported image format.
+     * @param format Format detected from the magic bytes.
+     * @param contentType Declared content type (for logging only).
+     * @param result Result to fill in.
+     * @return True if the format can be validated.
+     */
+    private boolean checkFormat(ImageFormat format, String contentType, ValidationResult result) {
+        result.format = format.id();
+        if (format == ImageFormat.UNKNOWN) {
+            result.valid = false;
+            result.message = "Invalid file type: must be an image";
+            log.warn("Validation failed: unrecognized content (declared content type {})", contentType);
+            return false;
+        }
+        if (!format.isSupported()) {
             result.valid = false;
-            result.message = "Invalid image format";
-            log.warn("Validation failed: cannot read image format");
+            result.message = "Unsupported image format: " + format.name();
+            result.suggestion = "Upload a JPEG, PNG, WebP, BMP or TIFF image.";
+            log.warn("Validation failed: unsupported format {}", format);
+            return false;
+        }
+        log.debug("Detected format {} (declared content type {})", format, contentType);
+        return true;
+    }
+
+    /**
+     * Runs the header probe, resolution, effective DPI, aspect ratio and blur checks on buffered image bytes.
+     * @param data Encoded image bytes (direct or mapped buffer, position 0).
+     * @param format Format detected from the magic bytes.
+     * @param fileName Original file name (for logging).
+     * @param xInches Target width in inches.
+     * @param yInches Target height in inches.
+     * @param targetDpi Optional target DPI.
+     * @param metric Sharpness metric for the blur check.
+     * @param result Result to fill in.
+     * @return The filled-in result.
+     * @throws IOException If the header cannot be read.
+     */
+    private ValidationResult validateImageData(ByteBuffer data, ImageFormat format, String fileName, double xInches,
+                                               double yInches, Integer targetDpi, SharpnessMetric metric,
+                                               ValidationResult result) throws IOException {
+        // Header probe: pixel dimensions without decoding pixels (full decode is deferred to the blur check)
+        ImageDimensions dimensions = ImageHeaderProbe.probe(data);
+        Mat matGray = null;
+        MemoryBudget.Grant memoryGrant = null;
+        ComputeScheduler.Slot computeSlot = null;
+        MatScratchPool.Lease scratch = null;
+        // Every Mat of the request (decode, views) is registered with the scope and released when it closes
+        try (NativeScope scope = NativeScope.open()) {
+            if (dimensions == null) {
+                // Header unreadable by the parsers and ImageIO (e.g., an unusual BMP info header): decode once with
+                // OpenCV and reuse that raster for blur. Without dimensions the footprint (and the pixel count for the
+                // compute slot) is guessed from the upload size; the decode runs inside both, like every other decode
+                long guessedPixels = (long) data.limit() * UNKNOWN_DIMENSIONS_EXPANSION;
+                // Only a guess: capped to the budget, so an oversized image is rejected by the prediction below
+                memoryGrant = memoryBudget.acquire(Math.min(guessedPixels, memoryBudget.budgetBytes()));
+                computeSlot = computeScheduler.acquire(guessedPixels);
+                matGray = decodeGrayscale(data, 1, false, scope);
+                if (matGray.empty()) {
+                    result.valid = false;
+                    result.message = "Invalid image format";
+                    log.warn("Validation failed: cannot read image format");
+                    return result;
+                }
+                dimensions = new ImageDimensions(matGray.cols(), matGray.rows());
+                // The guess admitted the decode; scoring is charged for the real raster (waiting, if it must, while
+                // holding the slot: the decode cannot be undone)
+                memoryGrant.extend(predictFootprint(format, dimensions, metric, true));
+            }
+            // JFIF/EXIF: declared density, orientation and embedded thumbnail (APPn segments only)
+            ImageMetadata metadata = format == ImageFormat.JPEG ? JpegMetadataReader.read(data) : ImageMetadata.NONE;
+            if (metadata.xDpi() > 0) {
+                result.declaredDpi = metadata.xDpi();
+            }
+            if (matGray == null && metadata.swapsDimensions()) {
+                // Header dimensions are as stored; validate the image as displayed (OpenCV's decode applies orientation)
+                dimensions = new ImageDimensions(dimensions.height(), dimensions.width());
+            }
+            int widthPx = dimensions.width();
+            int heightPx = dimensions.height();
+
+            // Use provided or default DPI
+            int dpi = (targetDpi != null && targetDpi > 0) ? targetDpi : defaultTargetDpi;
+            if (!checkDimensions(widthPx, heightPx, xInches, yInches, dpi, result)) {
+                return result;
+            }
+
+            // Thumbnail dimensions from its own header, so its decode is charged too (it runs before the main one)
+            ImageDimensions thumbnail = thumbnailPrescreenEnabled && matGray == null && metadata.hasThumbnail()
+                    ? probeThumbnail(data, metadata, dimensions) : null;
+
+            // Decode and scoring run inside a compute slot, which also fixes OpenCV's and the tile pass's threads.
+            // The predicted memory is reserved first, so a request waiting for memory holds no compute slot
+            if (memoryGrant == null) {
+                long footprint = predictFootprint(format, dimensions, metric, false);
+                memoryGrant = memoryBudget.acquire(thumbnail == null ? footprint
+                        : Math.max(footprint, thumbnailFootprint(thumbnail)));
+            }
+            if (computeSlot == null) {
+                computeSlot = computeScheduler.acquire(dimensions.pixelCount());
+            }
+
+            // EXIF thumbnail pre-screen: rejects hopelessly blurry captures before any full-size decode
+            if (thumbnail != null) {
+                double thumbnailVariance = computeThumbnailVariance(data, metadata);
+                if (thumbnailVariance < thumbnailRejectVariance) {
+                    result.valid = false;
+                    result.sharpnessEngine = "exif-thumbnail";
+                    result.blurVariance = thumbnailVariance;
+                    result.blurThreshold = thumbnailRejectVariance;
+                    result.blurScale = 0;
+                    result.message += String.format(" Image too blurry (EXIF thumbnail variance=%.2f < threshold=%.2f).",
+                            thumbnailVariance, thumbnailRejectVariance);
+                    result.suggestion += " Ensure steady capture with good lighting; avoid motion blur.";
+                    log.warn("Validation failed: EXIF thumbnail too blurry, variance={}", thumbnailVariance);
+                    return result;
+                }
+            }
+
+            // Blurriness check with the selected metric. Laplacian variance (default) can use the DCT-domain estimate
+            // for baseline JPEGs, the vector kernel or the tile map; every metric runs on the request's single decode,
+            // with a scratch stripe for the intermediates
+            scratch = matScratchPool.lease();
+            boolean laplacian = LaplacianVarianceMetric.ID.equals(metric.id());
+            int blurScale = 1;
+            SharpnessMap sharpnessMap = null;
+            SharpnessEngine engine = laplacian ? SharpnessEngine.fromProperty(sharpnessEngine) : SharpnessEngine.OPENCV;
+            double variance = Double.NaN;
+            if (engine == SharpnessEngine.DCT && format == ImageFormat.JPEG && matGray == null) {
+                variance = estimateDctVariance(data);
+            }
+            if (engine == SharpnessEngine.STREAMING && format == ImageFormat.JPEG && matGray == null
+                    && blurTileGrid <= 0) {
+                variance = streamingVariance(data);
+            }
+            if (Double.isNaN(variance)) {
+                if (engine != SharpnessEngine.VECTOR || !engine.isAvailable()) {
+                    engine = SharpnessEngine.OPENCV;
+                }
+                if (matGray == null && laplacian && blurTileGrid <= 0 && "progressive".equalsIgnoreCase(blurDecodeMode)) {
+                    PyramidDecision decision = decideOnPyramid(data, format, dimensions.pixelCount(), metric,
+                            engine == SharpnessEngine.VECTOR, scratch, scope);
+                    matGray = decision.fullResolution();
+                    result.blurDecisionLevel = Integer.numberOfTrailingZeros(decision.scale());
+                    if (decision.scale() > 1) {
+                        blurScale = decision.scale();
+                        variance = decision.variance();
+                    }
+                }
+                if (matGray == null && Double.isNaN(variance)) {
+                    blurScale = metric.supportsReducedDecode() ? selectBlurScale(dimensions.pixelCount()) : 1;
+                    // Laplacian variance (untiled) does not depend on orientation, so the EXIF rotate/flip is skipped
+                    matGray = decodeGrayscale(data, blurScale, laplacian && blurTileGrid <= 0, scope);
+                    if (matGray.empty()) {
+                        throw new IllegalArgumentException("Failed to load image for blur processing");
+                    }
+                }
+                Mat scored = matGray;
+                if (Double.isNaN(variance) && blurRoiEnabled && blurTileGrid <= 0) {
+                    // Score only the textured region (a view into the decode, no copy); null = whole frame
+                    Rect roi = SharpnessRoi.find(matGray, blurRoiGrid, blurRoiEdgeThreshold, blurRoiMinDensity,
+                            blurRoiMaxFraction, scratch);
+                    result.blurRoiFraction = roi == null ? 1.0 : roi.area() / (double) matGray.total();
+                    if (roi != null) {
+                        scored = scope.view(matGray.submat(roi));
+                        log.debug("Blur scored on region {} ({} of the frame)", roi, result.blurRoiFraction);
+                    }
+                }
+                if (!Double.isNaN(variance)) {
+                    log.debug("Blur decided on the 1/{} pyramid level", blurScale);
+                } else if (!laplacian) {
+                    variance = metric.score(scored);
+                } else if (blurTileGrid > 0) {
+                    // Tiled pass: same global variance, plus the per-tile map, scored on the slot's cores
+                    sharpnessMap = TiledSharpness.compute(matGray, blurTileGrid, computeSlot.tilePool());
+                    variance = sharpnessMap.globalVariance();
+                } else {
+                    if (blurSamplingEnabled) {
+                        // Clear-cut images are decided from a row sample; borderline ones fall through to the full pass
+                        SampledLaplacian.Estimate estimate = SampledLaplacian.estimate(scored,
+                                calibratedBlurThreshold(metric, blurScale), blurSamplingZ, blurSamplingMinRows,
+                                blurSamplingMaxFraction, engine == SharpnessEngine.VECTOR);
+                        result.blurSampledFraction = estimate.decided() ? estimate.sampledFraction() : 1.0;
+                        if (estimate.decided()) {
+                            variance = estimate.variance();
+                        }
+                        log.debug("Sampled blur estimate {} +/- {} from {} of {} rows, decided={}", estimate.variance(),
+                                estimate.halfWidth(), estimate.rowsScored(), estimate.rows(), estimate.decided());
+                    }
+                    if (Double.isNaN(variance) && laplacianBatcher.accepts(scored)) {
+                        // Small raster: scored with others in one packed pass; waiting for the batch holds no slot
+                        computeSlot.close();
+                        scratch.close();
+                        variance = laplacianBatcher.variance(scored);
+                    }
+                    if (Double.isNaN(variance)) {
+                        variance = engine == SharpnessEngine.VECTOR
+                                ? VectorLaplacian.variance(scored)
+                                : computeLaplacianVariance(scored);
+                    }
+                }
+            }
+            computeSlot.close();
+            scratch.close();
+            double blurThreshold = calibratedBlurThreshold(metric, blurScale);
+            result.sharpnessMetric = metric.id();
+            result.sharpnessEngine = engine.id();
+            result.blurScale = blurScale;
+            result.blurVariance = variance;
+            result.blurThreshold = blurThreshold;
+            if (variance < blurThreshold) {
+                result.valid = false;
+                // Heuristic blur %: Normalize variance to 0-100% (tune *2 based on max observed sharp variance)
+                double blurPercentage = Math.max(0, (1 - (variance / (blurThreshold * 2))) * 100);
+                result.message += String.format(" Image too blurry (estimated %.1f%% blur, %s=%.2f < threshold=%.2f).",
+                        blurPercentage, laplacian ? "variance" : metric.id(), variance, blurThreshold);
+                result.suggestion += " Ensure steady capture with good lighting; avoid motion blur.";
+                log.warn("Validation failed: image too blurry, {}={}", metric.id(), variance);
+            } else if (sharpnessMap != null) {
+                checkPartialBlur(sharpnessMap, blurThreshold, result);
+            }
+
+            // Success message
+            if (result.valid) {
+                result.message = String.format("Valid for %.1fx%.1f inches @ %d DPI (effective %.1f DPI, %d x %d px).",
+                        xInches, yInches, dpi, result.effectiveDpi, widthPx, heightPx);
+                result.suggestion = "Ready for processing/printing.";
+                log.info("Validation passed for file: {}", fileName);
+            }
+
             return result;
+        } finally {
+            if (computeSlot != null) {
+                computeSlot.close();
+            }
+            if (scratch != null) {
+                scratch.close();
+            }
+            // After the scope has released the Mats
+            if (memoryGrant != null) {
+                memoryGrant.close();
+            }
         }
-        int widthPx = bufferedImage.getWidth();
-        int heightPx = bufferedImage.getHeight();
+    }
+
+    /**
+     * Zero-dimension, resolution, effective DPI and aspect ratio checks on pixel dimensions alone.
+     * @param widthPx Image width in pixels (as displayed).
+     * @param heightPx Image height in pixels (as displayed).
+     * @param xInches Target width in inches.
+     * @param yInches Target height in inches.
+     * @param dpi Target DPI.
+     * @param result Result to fill in.
+     * @return True if the dimensions pass; otherwise result holds the failure.
+     */
+    private boolean checkDimensions(int widthPx, int heightPx, double xInches, double yInches, int dpi,
+                                    ValidationResult result) {
         if (widthPx == 0 || heightPx == 0) {
             result.valid = false;
             result.message = "Image has zero dimensions";
             log.warn("Validation failed: zero dimensions");
-            return result;
+            return false;
         }
 
-        // Use provided or default DPI
-        int dpi = (targetDpi != null && targetDpi > 0) ? targetDpi : defaultTargetDpi;
-
         // Compute required pixels for target size/DPI
         double reqWidthPx = xInches * dpi;
         double reqHeightPx = yInches * dpi;
@@ -128,7 +712,7 @@ public class ImageValidationService {
             result.suggestion = String.format("Use ≥%.0fx%.0f px image (e.g., scan/capture at ≥%.0f DPI).",
                     minReqWidth, minReqHeight, dpi * (minPct / 100));
             log.warn("Validation failed: insufficient resolution");
-            return result;  // Early exit on res fail
+            return false;  // Early exit on res fail
         }
 
         // Compute effective DPI (min of x/y for conservative estimate)
@@ -139,7 +723,7 @@ public class ImageValidationService {
             result.message = String.format("Low effective DPI: %.1f (%.1f%% of target %d).", result.effectiveDpi, effectivePct, dpi);
             result.suggestion += " Increase capture resolution.";
             log.warn("Validation failed: low effective DPI");
-            return result;
+            return false;
         }
 
         // Optional: Aspect ratio check (tolerance 20% of target AR)
@@ -151,60 +735,275 @@ public class ImageValidationService {
             result.message += " Aspect ratio mismatch.";
             result.suggestion += String.format(" Expected ~%.2f (from %.1fx%.1f inches).", targetAR, xInches, yInches);
             log.warn("Validation failed: aspect ratio mismatch");
-            return result;
+            return false;
         }
+        return true;
+    }
 
-        // Blurriness check using Laplacian variance
-        double variance = computeLaplacianVariance(bytes);
-        if (variance < maxBlurVariance) {
+    /**
+     * Partial-blur check on the tile map: a globally sharp image still fails if too few of its textured tiles
+     * reach the blur threshold (e.g., one sharp corner and a smeared text block).
+     * @param map Tile map of the scored raster.
+     * @param blurThreshold Per-scale blur threshold, applied to each tile.
+     * @param result Result to fill in.
+     */
+    private void checkPartialBlur(SharpnessMap map, double blurThreshold, ValidationResult result) {
+        result.tileColumns = map.columns();
+        result.tileRows = map.rows();
+        result.tileVariances = map.grid(blurTileMinContrast);
+        double[] content = map.contentVariances(blurTileMinContrast);
+        if (content.length == 0) {
+            log.debug("No textured tiles above contrast {}; partial-blur check skipped", blurTileMinContrast);
+            return;
+        }
+        result.tileMinVariance = content[0];
+        result.tileP10Variance = SharpnessMap.percentile(content, 10);
+        result.sharpTileFraction = SharpnessMap.fractionAtLeast(content, blurThreshold);
+        if (result.sharpTileFraction < blurTileMinSharpFraction) {
             result.valid = false;
-            // Heuristic blur %: Normalize variance to 0-100% (tune *2 based on max observed sharp variance)
-            double blurPercentage = Math.max(0, (1 - (variance / (maxBlurVariance * 2))) * 100);
-            result.message += String.format(" Image too blurry (estimated %.1f%% blur, variance=%.2f < threshold=%.2f).",
-                    blurPercentage, variance, maxBlurVariance);
-            result.suggestion += " Ensure steady capture with good lighting; avoid motion blur.";
-            log.warn("Validation failed: image too blurry, variance={}", variance);
+            result.message += String.format(" Image partially blurred (%.0f%% of %d textured tiles sharp, minimum %.0f%%; lowest tile variance=%.2f).",
+                    result.sharpTileFraction * 100, content.length, blurTileMinSharpFraction * 100, result.tileMinVariance);
+            result.suggestion += " Keep the whole document in focus and flat; avoid motion blur.";
+            log.warn("Validation failed: partial blur, sharp tile fraction={}", result.sharpTileFraction);
         }
+    }
 
-        // Success message
-        if (result.valid) {
-            result.message = String.format("Valid for %.1fx%.1f inches @ %d DPI (effective %.1f DPI, %d x %d px).",
-                    xInches, yInches, dpi, result.effectiveDpi, widthPx, heightPx);
-            result.suggestion = "Ready for processing/printing.";
-            log.info("Validation passed for file: {}", file.getOriginalFilename());
+    /**
+     * Reads the embedded thumbnail's dimensions from its header.
+     * @param data Encoded image bytes.
+     * @param metadata Metadata with the thumbnail location.
+     * @param image Dimensions of the image itself.
+     * @return Thumbnail dimensions, or null to skip the pre-screen (unreadable header, or larger than the image).
+     */
+    private ImageDimensions probeThumbnail(ByteBuffer data, ImageMetadata metadata, ImageDimensions image) {
+        long packed = ImageHeaderParser.parse(data.slice(metadata.thumbnailOffset(), metadata.thumbnailLength()));
+        if (packed < 0) {
+            return null;
+        }
+        ImageDimensions thumbnail = new ImageDimensions(ImageHeaderParser.width(packed), ImageHeaderParser.height(packed));
+        if (thumbnail.pixelCount() > image.pixelCount()) {
+            log.debug("EXIF thumbnail {}x{} is larger than the image; pre-screen skipped", thumbnail.width(),
+                    thumbnail.height());
+            return null;
         }
+        return thumbnail;
+    }
 
-        return result;
+    /**
+     * @return Peak memory of the thumbnail pre-screen: the grayscale raster and the Laplacian's row buffers.
+     */
+    private long thumbnailFootprint(ImageDimensions thumbnail) {
+        return thumbnail.pixelCount() + sharpnessMetrics.resolve(LaplacianVarianceMetric.ID)
+                .workingBytes(thumbnail.width(), thumbnail.height());
     }
 
     /**
-     * Computes Laplacian variance for blurriness: High variance = sharp edges (not blurry).
-     * @param imageBytes Raw image bytes.
-     * @return Variance (e.g., >100 = sharp).
+     * Laplacian variance of the embedded EXIF thumbnail, decoded from its slice of the upload buffer (no copy).
+     * @param data Encoded image bytes.
+     * @param metadata Metadata with the thumbnail location.
+     * @return Thumbnail variance, or +Infinity if the thumbnail cannot be decoded (never rejects).
      */
-    private double computeLaplacianVariance(byte[] imageBytes) {
-        // Load as grayscale Mat (OpenCV matrix)
-        Mat matGray = Imgcodecs.imdecode(new org.opencv.core.MatOfByte(imageBytes), Imgcodecs.IMREAD_GRAYSCALE);
-        if (matGray.empty()) {
-            throw new IllegalArgumentException("Failed to load image for blur processing");
+    private double computeThumbnailVariance(ByteBuffer data, ImageMetadata metadata) {
+        try (NativeScope scope = NativeScope.open()) {
+            Mat encoded = scope.view(UploadBufferPool.wrap(data));
+            Mat slice = scope.view(encoded.colRange(metadata.thumbnailOffset(),
+                    metadata.thumbnailOffset() + metadata.thumbnailLength()));
+            Mat thumbnail = scope.own(Imgcodecs.imdecode(slice,
+                    Imgcodecs.IMREAD_GRAYSCALE | Imgcodecs.IMREAD_IGNORE_ORIENTATION));
+            if (thumbnail.empty()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return laplacianBatcher.accepts(thumbnail)
+                    ? laplacianBatcher.variance(thumbnail)
+                    : computeLaplacianVariance(thumbnail);
         }
+    }
+
+    /**
+     * Estimates Laplacian variance from the JPEG's DCT coefficients (no pixel decode).
+     * @param data Encoded image bytes.
+     * @return Calibrated variance, or NaN if the data is not a baseline JPEG the estimator supports.
+     */
+    private double estimateDctVariance(ByteBuffer data) {
+        try {
+            return DctSharpnessEstimator.estimate(data, dctCalibration);
+        } catch (IOException e) {
+            log.debug("DCT sharpness estimate failed, falling back to pixel decode: {}", e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Laplacian variance of a baseline JPEG decoded row by row (the full-size raster is never held in memory).
+     * @param data Encoded image bytes.
+     * @return Variance (same value as the OpenCV path), or NaN if the JPEG flavor is unsupported.
+     */
+    private double streamingVariance(ByteBuffer data) {
+        try {
+            return StreamingLaplacian.variance(data, SharpnessEngine.VECTOR.isAvailable());
+        } catch (IOException e) {
+            log.debug("Streaming sharpness pass failed, falling back to full decode: {}", e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Picks the blur decode scale (1, 2, 4 or 8) from the header pixel count.
+     * In "reduced" mode the largest scale is used that still leaves at least blur-reduced-min-pixels to score.
+     * @param pixelCount Width * height from the header probe.
+     * @return Linear downscale factor for the blur decode (1 = full resolution).
+     */
+    private int selectBlurScale(long pixelCount) {
+        if (!"reduced".equalsIgnoreCase(blurDecodeMode)) {
+            return 1;
+        }
+        int scale = 1;
+        while (scale * 2 <= Math.min(blurReducedMaxScale, 8)
+                && pixelCount / ((long) scale * 2 * scale * 2) >= blurReducedMinPixels) {
+            scale *= 2;
+        }
+        return scale;
+    }
+
+    /**
+     * Predicts the request's peak decode memory for admission: the grayscale raster at the decode scale, WebP's
+     * full-size BGRA decode (OpenCV converts it to gray afterwards; the other decoders convert row by row), the
+     * pyramid's coarser levels, the ROI analysis copy and the metric's scoring buffers (per thread for the tile map).
+     * The DCT and streaming engines may fall back to a full decode, so they are charged for one.
+     * @param format Detected format.
+     * @param dimensions Header dimensions.
+     * @param metric Sharpness metric for the blur check.
+     * @param decoded True if the full-resolution raster already exists (header fallback): no decode is left to charge.
+     * @return Predicted bytes.
+     */
+    private long predictFootprint(ImageFormat format, ImageDimensions dimensions, SharpnessMetric metric,
+                                  boolean decoded) {
+        long pixels = dimensions.pixelCount();
+        int scale = !decoded && metric.supportsReducedDecode() ? selectBlurScale(pixels) : 1;
+        long raster = pixels / ((long) scale * scale);
+        long footprint = !decoded && format == ImageFormat.WEBP ? raster * 5 : raster;
+        if (!decoded && "progressive".equalsIgnoreCase(blurDecodeMode)) {
+            footprint += raster / 3;
+        }
+        if (blurRoiEnabled) {
+            footprint += raster / 4;
+        }
+        int threads = blurTileGrid > 0 ? Runtime.getRuntime().availableProcessors() : 1;
+        return footprint + threads * metric.workingBytes(dimensions.width() / scale, dimensions.height() / scale);
+    }
 
-        // Apply Laplacian filter (edge detector)
-        Mat destination = new Mat();
-        Imgproc.Laplacian(matGray, destination, CvType.CV_64F);
+    /**
+     * Outcome of the coarse-to-fine pass.
+     * @param scale Linear downscale factor of the deciding level (1 = undecided; the caller scores full resolution).
+     * @param variance Laplacian variance at that level (NaN when undecided).
+     * @param fullResolution Full-size grayscale decoded on the way (non-JPEG formats), or null; owned by the caller's scope.
+     */
+    private record PyramidDecision(int scale, double variance, Mat fullResolution) {
+    }
 
-        // Compute std dev, then variance = std^2
-        org.opencv.core.MatOfDouble mean = new org.opencv.core.MatOfDouble();
-        org.opencv.core.MatOfDouble std = new org.opencv.core.MatOfDouble();
-        Core.meanStdDev(destination, mean, std);
-        double variance = Math.pow(std.get(0, 0)[0], 2);
+    /**
+     * Coarse-to-fine blur decision: scores the smallest pyramid level first and stops at the first level whose
+     * variance is clearly above or below its calibrated threshold (by that level's margin; coarse levels compress the
+     * sharp/blurry spread, so their margins are wider). JPEG levels are DCT-scaled decodes, cheapest first; other
+     * formats are decoded once at full size and each level is area-downscaled from the next finer one.
+     * @param data Encoded image bytes.
+     * @param format Detected format.
+     * @param pixelCount Width * height from the header probe.
+     * @param metric Laplacian variance metric (threshold source).
+     * @param vector Score levels with the SIMD kernel.
+     * @param scratch Scratch Mats for the downscaled levels of non-JPEG formats (level i uses slot i - 1).
+     * @param scope Scope that takes the full-resolution level; coarser levels are released before returning.
+     * @return Deciding level, or scale 1 when only full resolution can decide.
+     */
+    private PyramidDecision decideOnPyramid(ByteBuffer data, ImageFormat format, long pixelCount, SharpnessMetric metric,
+                                            boolean vector, MatScratchPool.Lease scratch, NativeScope scope) {
+        int coarsest = 1;
+        while (coarsest * 2 <= Math.min(8, 1 << blurPyramidMargins.length)
+                && pixelCount / ((long) coarsest * 2 * coarsest * 2) >= blurPyramidMinPixels) {
+            coarsest *= 2;
+        }
+        Mat[] levels = new Mat[Integer.numberOfTrailingZeros(coarsest) + 1];
+        try (NativeScope coarse = NativeScope.open()) {
+            if (format != ImageFormat.JPEG) {
+                levels[0] = decodeGrayscale(data, 1, true, scope);
+                if (levels[0].empty()) {
+                    throw new IllegalArgumentException("Failed to load image for blur processing");
+                }
+                for (int i = 1; i < levels.length; i++) {
+                    // Sized as resize rounds (cvRound), so it writes into the scratch view instead of reallocating
+                    levels[i] = coarse.view(scratch.mat(i - 1, (int) Math.rint(levels[i - 1].rows() * 0.5),
+                            (int) Math.rint(levels[i - 1].cols() * 0.5), CvType.CV_8UC1));
+                    Imgproc.resize(levels[i - 1], levels[i], new Size(), 0.5, 0.5, Imgproc.INTER_AREA);
+                }
+            }
+            for (int i = levels.length - 1; i > 0; i--) {
+                int scale = 1 << i;
+                if (levels[i] == null) {
+                    levels[i] = decodeGrayscale(data, scale, true, coarse);
+                    if (levels[i].empty()) {
+                        break;
+                    }
+                }
+                double variance = vector ? VectorLaplacian.variance(levels[i]) : computeLaplacianVariance(levels[i]);
+                double threshold = calibratedBlurThreshold(metric, scale);
+                double margin = blurPyramidMargins[i - 1];
+                log.debug("Pyramid level 1/{}: variance={}, threshold={}, margin={}", scale, variance, threshold, margin);
+                if (variance >= threshold * margin || variance < threshold / margin) {
+                    return new PyramidDecision(scale, variance, levels[0]);
+                }
+            }
+            return new PyramidDecision(1, Double.NaN, levels[0]);
+        }
+    }
+
+    /**
+     * Maps the metric's threshold (app.image.max-blur-variance for Laplacian variance) to the equivalent threshold
+     * at a reduced decode scale.
+     * Downscaling steepens edges, so variance rises; factors are per scale (1/2, 1/4, 1/8) and tuned with samples.
+     * @param metric Sharpness metric.
+     * @param scale Linear downscale factor used for the blur decode.
+     * @return Threshold to compare against at that scale.
+     */
+    private double calibratedBlurThreshold(SharpnessMetric metric, int scale) {
+        int index = Integer.numberOfTrailingZeros(scale) - 1;
+        if (index < 0 || index >= blurReducedFactors.length) {
+            return metric.threshold();
+        }
+        return metric.threshold() * blurReducedFactors[index];
+    }
 
-        // Cleanup (prevents memory leaks)
-        matGray.release();
-        destination.release();
-        mean.release();
-        std.release();
+    /**
+     * Decodes the image once as an 8-bit grayscale Mat; shared by the dimension fallback and the blur check.
+     * For YCbCr JPEGs this is a luma-only decode: libjpeg marks Cb/Cr as not needed for grayscale output, so chroma
+     * is only entropy-decoded (interleaved in the bitstream) with no IDCT, upsampling or color conversion
+     * (about 2x faster than a color decode on 12 MP).
+     * @param data Encoded image bytes in a direct buffer (wrapped, not copied).
+     * @param scale Linear downscale factor (1, 2, 4 or 8); uses OpenCV's IMREAD_REDUCED_GRAYSCALE_* flags (DCT scaling for JPEG).
+     * @param ignoreOrientation Keep the stored orientation (skips a full-raster rotate/flip for EXIF-rotated captures);
+     *                          only for scores that are invariant under 90-degree rotations and flips.
+     * @param scope Scope that owns the decoded Mat (and the header over the upload buffer).
+     * @return Grayscale Mat (empty if OpenCV cannot decode the format), released with the scope.
+     */
+    private Mat decodeGrayscale(ByteBuffer data, int scale, boolean ignoreOrientation, NativeScope scope) {
+        int flags = switch (scale) {
+            case 2 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            case 8 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+            default -> Imgcodecs.IMREAD_GRAYSCALE;
+        };
+        if (ignoreOrientation) {
+            flags |= Imgcodecs.IMREAD_IGNORE_ORIENTATION;
+        }
+        return scope.own(Imgcodecs.imdecode(scope.view(UploadBufferPool.wrap(data)), flags));
+    }
 
-        return variance;
+    /**
+     * Computes Laplacian variance for blurriness: High variance = sharp edges (not blurry).
+     * Fused single pass over the source rows (no CV_64F Laplacian image, no second meanStdDev pass).
+     * @param matGray Decoded grayscale image (not released here).
+     * @return Variance (e.g., >100 = sharp).
+     */
+    static double computeLaplacianVariance(Mat matGray) {
+        return FusedLaplacian.variance(matGray);
     }
 }
\ No newline at end of file
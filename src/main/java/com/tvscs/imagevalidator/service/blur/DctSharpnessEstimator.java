@@ -0,0 +1,64 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.tvscs.imagevalidator.service.jpeg.JpegCoefficientReader;
+
+/**
+ * Estimates the Laplacian variance of a baseline JPEG's luma plane directly from its DCT coefficients.
+ * <p>
+ * The 8x8 DCT-II basis functions are eigenvectors of the 4-neighbour Laplacian (with reflected block borders),
+ * with eigenvalue -(4 sin^2(pi u/16) + 4 sin^2(pi v/16)). JPEG's DCT is orthonormal, so by Parseval a block's
+ * Laplacian energy is sum(F(u,v)^2 * lambda(u,v)^2) and no pixel ever has to be reconstructed.
+ * Block-boundary edges are not seen by this model, which the calibration factor absorbs.
+ */
+public final class DctSharpnessEstimator implements JpegCoefficientReader.BlockListener {
+
+    private static final double[] LAPLACIAN_GAIN = new double[64];
+
+    static {
+        for (int v = 0; v < 8; v++) {
+            for (int u = 0; u < 8; u++) {
+                double su = Math.sin(Math.PI * u / 16);
+                double sv = Math.sin(Math.PI * v / 16);
+                double lambda = 4 * su * su + 4 * sv * sv;
+                LAPLACIAN_GAIN[v * 8 + u] = lambda * lambda;
+            }
+        }
+    }
+
+    private double energy;
+    private long blocks;
+
+    private DctSharpnessEstimator() {
+    }
+
+    /**
+     * @param jpeg Encoded JPEG bytes.
+     * @param calibration Multiplier mapping the DCT-domain estimate onto OpenCV's Laplacian variance.
+     * @return Estimated Laplacian variance, or NaN if the JPEG flavor is unsupported (caller falls back to pixels).
+     * @throws IOException If the JPEG is corrupt.
+     */
+    public static double estimate(ByteBuffer jpeg, double calibration) throws IOException {
+        DctSharpnessEstimator estimator = new DctSharpnessEstimator();
+        if (!JpegCoefficientReader.read(jpeg, estimator) || estimator.blocks == 0) {
+            return Double.NaN;
+        }
+        return estimator.energy / (estimator.blocks * 64.0) * calibration;
+    }
+
+    @Override
+    public void block(int blockX, int blockY, int[] coefficients) {
+        // DC has zero gain; sparse AC coefficients make the zero check worthwhile
+        double sum = 0;
+        for (int i = 1; i < 64; i++) {
+            int c = coefficients[i];
+            if (c != 0) {
+                sum += (double) c * c * LAPLACIAN_GAIN[i];
+            }
+        }
+        energy += sum;
+        blocks++;
+    }
+}
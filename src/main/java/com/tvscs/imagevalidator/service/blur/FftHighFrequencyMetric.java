@@ -0,0 +1,112 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tvscs.imagevalidator.service.io.NativeScope;
+
+/**
+ * FFT high-frequency ratio: share of spectral energy above a radial cutoff, measured on one full-resolution
+ * window (the highest-contrast of 3x3 candidate positions) after mean removal and a Hann window.
+ * A ratio is independent of exposure and contrast, but it looks at a single window and is noise-sensitive on flat
+ * content. Cost is fixed by the window size rather than the image size.
+ * Benchmark (12 MP decoded raster, one core): ~5-15 ms, mostly independent of image size.
+ */
+@Component
+public class FftHighFrequencyMetric implements SharpnessMetric {
+
+    private static final int WINDOW = 512;
+
+    // Cutoff radius as a fraction of the Nyquist frequency
+    private static final double CUTOFF = 0.25;
+
+    @Value("${app.image.fft-threshold}")
+    private double threshold;
+
+    @Override
+    public String id() {
+        return "fft";
+    }
+
+    @Override
+    public double score(Mat gray) {
+        int side = Math.min(WINDOW, Math.min(gray.rows(), gray.cols()));
+        if (side < 8) {
+            return 0;
+        }
+        Rect roi = highestContrastWindow(gray, side);
+        try (NativeScope scope = NativeScope.open()) {
+            // Outputs are pre-sized so the scope counts their buffers; OpenCV writes into them without reallocating
+            Mat window = scope.own(new Mat(side, side, CvType.CV_32F));
+            Mat hann = scope.own(new Mat(side, side, CvType.CV_32F));
+            Mat spectrum = scope.own(new Mat(side, side, CvType.CV_32FC2));
+            scope.view(gray.submat(roi)).convertTo(window, CvType.CV_32F);
+            Core.subtract(window, Core.mean(window), window);
+            Imgproc.createHanningWindow(hann, new Size(side, side), CvType.CV_32F);
+            Core.multiply(window, hann, window);
+            Core.dft(window, spectrum, Core.DFT_COMPLEX_OUTPUT);
+            float[] bins = new float[side * side * 2];
+            spectrum.get(0, 0, bins);
+            return highFrequencyRatio(bins, side);
+        }
+    }
+
+    @Override
+    public double threshold() {
+        return threshold;
+    }
+
+    @Override
+    public long workingBytes(int width, int height) {
+        // Window and Hann weights (CV_32F), complex spectrum, and its float[] copy on the heap
+        long side = Math.min(WINDOW, Math.min(width, height));
+        return side * side * (4 + 4 + 8 + 8);
+    }
+
+    private static Rect highestContrastWindow(Mat gray, int side) {
+        Rect best = null;
+        double bestStd = -1;
+        try (NativeScope scope = NativeScope.open()) {
+            MatOfDouble mean = scope.own(new MatOfDouble());
+            MatOfDouble std = scope.own(new MatOfDouble());
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    Rect candidate = new Rect((gray.cols() - side) * j / 2, (gray.rows() - side) * i / 2, side, side);
+                    Core.meanStdDev(scope.view(gray.submat(candidate)), mean, std);
+                    if (std.get(0, 0)[0] > bestStd) {
+                        bestStd = std.get(0, 0)[0];
+                        best = candidate;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double highFrequencyRatio(float[] bins, int side) {
+        double cutoff = CUTOFF * side / 2;
+        double cutoffSq = cutoff * cutoff;
+        double total = 0;
+        double high = 0;
+        for (int v = 0; v < side; v++) {
+            int fv = Math.min(v, side - v);
+            for (int u = 0; u < side; u++) {
+                int fu = Math.min(u, side - u);
+                int i = 2 * (v * side + u);
+                double power = (double) bins[i] * bins[i] + (double) bins[i + 1] * bins[i + 1];
+                total += power;
+                if (fu * fu + fv * fv > cutoffSq) {
+                    high += power;
+                }
+            }
+        }
+        return total > 0 ? high / total : 0;
+    }
+}
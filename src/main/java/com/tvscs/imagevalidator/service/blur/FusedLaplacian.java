@@ -0,0 +1,135 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Single-pass Laplacian variance: the 4-neighbour response (Imgproc.Laplacian ksize=1, BORDER_REFLECT_101) is
+ * computed and accumulated as integer sum / sum of squares in the same sweep, so no destination image exists.
+ * Rows are pulled from the Mat into a three-row window; memory beyond the grayscale source is O(width).
+ * Responses are integers in [-1020, 1020] (16 bits) and the sums are exact in 64-bit integers, so the only rounding is
+ * the final division; the result equals Laplacian(CV_64F) + meanStdDev within that path's own double rounding
+ * (relative 1e-12, checked by LaplacianVarianceTest). This is the default path for the 8-bit rasters every decode yields.
+ */
+public final class FusedLaplacian {
+
+    /**
+     * Adds one output row's contribution to the running sums (Laplacian: response sum and squared sum).
+     */
+    @FunctionalInterface
+    public interface RowAccumulator {
+        /**
+         * @param up Row above (reflected at the top border), widened to int.
+         * @param mid Row being filtered.
+         * @param down Row below (reflected at the bottom border).
+         * @param width Row width.
+         * @param sums Running sums, e.g. {sum, sumOfSquares}.
+         */
+        void accumulate(int[] up, int[] mid, int[] down, int width, long[] sums);
+    }
+
+    private FusedLaplacian() {
+    }
+
+    /**
+     * @param gray CV_8UC1 Mat, continuous or a submat view (rows are read one at a time; not released here).
+     * @return Population variance of the Laplacian response.
+     */
+    public static double variance(Mat gray) {
+        return variance(gray, FusedLaplacian::accumulateRow);
+    }
+
+    /**
+     * Streams the Mat's rows through a row accumulator (scalar here, SIMD in {@link VectorLaplacian}).
+     * @param gray CV_8UC1 Mat, continuous or a submat view (rows are read one at a time; not released here).
+     * @param accumulator Per-row kernel.
+     * @return Population variance of the Laplacian response.
+     */
+    static double variance(Mat gray, RowAccumulator accumulator) {
+        long[] sums = sweep(gray, accumulator);
+        double n = (double) gray.cols() * gray.rows();
+        if (n == 0) {
+            return 0;
+        }
+        double mean = sums[0] / n;
+        return Math.max(0, sums[1] / n - mean * mean);
+    }
+
+    /**
+     * One pass over the rows with a three-row window (reflect-101 above the first and below the last row).
+     * Also used by the gradient metrics, which accumulate their own per-row sums.
+     * @param gray CV_8UC1 Mat, continuous or a submat view (rows are read one at a time; not released here).
+     * @param accumulator Per-row kernel.
+     * @return The accumulator's sums {sums[0], sums[1]}.
+     */
+    static long[] sweep(Mat gray, RowAccumulator accumulator) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Expected a CV_8UC1 Mat");
+        }
+        int width = gray.cols();
+        int height = gray.rows();
+        long[] sums = new long[2];
+        if (width == 0 || height == 0) {
+            return sums;
+        }
+        byte[] raw = new byte[width];
+        int[] up = new int[width];
+        int[] mid = new int[width];
+        int[] down = new int[width];
+        load(gray, reflect(-1, height), raw, up);
+        load(gray, 0, raw, mid);
+        for (int y = 0; y < height; y++) {
+            load(gray, reflect(y + 1, height), raw, down);
+            accumulator.accumulate(up, mid, down, width, sums);
+            int[] recycled = up;
+            up = mid;
+            mid = down;
+            down = recycled;
+        }
+        return sums;
+    }
+
+    static void accumulateRow(int[] up, int[] mid, int[] down, int width, long[] sums) {
+        long sum = 0;
+        long sumSq = 0;
+        for (int x = 1; x < width - 1; x++) {
+            int r = up[x] + down[x] + mid[x - 1] + mid[x + 1] - 4 * mid[x];
+            sum += r;
+            sumSq += r * r;
+        }
+        sums[0] += sum;
+        sums[1] += sumSq;
+        accumulateBorderColumns(up, mid, down, width, sums);
+    }
+
+    // First and last column, whose missing neighbours are reflect-101 (x-1 -> 1, x+1 -> width-2)
+    static void accumulateBorderColumns(int[] up, int[] mid, int[] down, int width, long[] sums) {
+        int first = up[0] + down[0] + mid[reflect(-1, width)] + mid[reflect(1, width)] - 4 * mid[0];
+        sums[0] += first;
+        sums[1] += (long) first * first;
+        if (width > 1) {
+            int x = width - 1;
+            int last = up[x] + down[x] + mid[x - 1] + mid[reflect(width, width)] - 4 * mid[x];
+            sums[0] += last;
+            sums[1] += (long) last * last;
+        }
+    }
+
+    private static void load(Mat gray, int y, byte[] raw, int[] row) {
+        gray.get(y, 0, raw);
+        for (int x = 0; x < raw.length; x++) {
+            row[x] = raw[x] & 0xFF;
+        }
+    }
+
+    // BORDER_REFLECT_101 index (gfedcb|abcdefgh|gfedcba); a single row/column reflects onto itself
+    static int reflect(int i, int n) {
+        if (n == 1) {
+            return 0;
+        }
+        if (i < 0) {
+            return -i;
+        }
+        return i >= n ? 2 * n - 2 - i : i;
+    }
+}
@@ -0,0 +1,205 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tvscs.imagevalidator.service.io.NativeScope;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Micro-batches the Laplacian variance of small rasters (thumbnails, ID-photo crops). The first request of a batch
+ * waits up to app.image.blur-batch-window-micros for others, packs every raster with a one-pixel reflect-101 border
+ * (copyMakeBorder) into one shared canvas, reads the canvas back in a single bulk copy and scores all regions in one
+ * sweep; the other requests wait for their result. Per-image cost drops to one native copy instead of a JNI read per
+ * row plus per-call row buffers. The bordered regions reproduce {@link FusedLaplacian}'s border handling, so each
+ * result is identical to scoring the raster alone.
+ */
+@Component
+public class LaplacianBatcher {
+
+    private final boolean enabled;
+    private final long maxPixels;
+    private final long windowNanos;
+    private final int maxImages;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+
+    public LaplacianBatcher(@Value("${app.image.blur-batch-enabled}") boolean enabled,
+                            @Value("${app.image.blur-batch-max-pixels}") long maxPixels,
+                            @Value("${app.image.blur-batch-window-micros}") long windowMicros,
+                            @Value("${app.image.blur-batch-max-images}") int maxImages,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxPixels = maxPixels;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxImages = Math.max(1, maxImages);
+        this.batchSizes = DistributionSummary.builder("image.blur.batch.size")
+                .description("Rasters scored per batched Laplacian pass").register(meterRegistry);
+    }
+
+    /**
+     * @param gray Decoded grayscale raster.
+     * @return True if batching is enabled and the raster is small enough to be batched.
+     */
+    public boolean accepts(Mat gray) {
+        return enabled && gray.total() <= maxPixels;
+    }
+
+    /**
+     * Scores the raster as part of the next batch; blocks for at most the batch window plus the batch's pass.
+     * @param gray CV_8UC1 Mat, continuous or a submat view (not released here; must stay valid until this returns).
+     * @return Population variance of the Laplacian response (same value as {@link FusedLaplacian#variance(Mat)}).
+     */
+    public double variance(Mat gray) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Expected a CV_8UC1 Mat");
+        }
+        Pending entry = new Pending(gray);
+        boolean leader;
+        synchronized (lock) {
+            leader = pending.isEmpty();
+            pending.add(entry);
+            if (pending.size() >= maxImages) {
+                lock.notifyAll();
+            }
+        }
+        if (leader) {
+            score(collect());
+        }
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Leader: wait until the window closes or the batch is full, then take the batch (later arrivals start the next)
+    private List<Pending> collect() {
+        synchronized (lock) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            while (pending.size() < maxImages && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    // Score what has arrived; the followers are waiting on this thread
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            List<Pending> batch = pending;
+            pending = new ArrayList<>();
+            return batch;
+        }
+    }
+
+    private void score(List<Pending> batch) {
+        try {
+            long[][] sums = sweep(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                Mat gray = batch.get(i).gray;
+                double n = (double) gray.cols() * gray.rows();
+                double mean = n == 0 ? 0 : sums[i][0] / n;
+                batch.get(i).result.complete(n == 0 ? 0 : Math.max(0, sums[i][1] / n - mean * mean));
+            }
+            batchSizes.record(batch.size());
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Packs the rasters into one canvas (stacked vertically, each padded by one reflect-101 pixel) and accumulates
+     * the Laplacian sum and sum of squares of each region's interior in one pass over the canvas bytes.
+     * @param batch Rasters to score.
+     * @return {sum, sumOfSquares} per raster, in batch order.
+     */
+    static long[][] sweep(List<Pending> batch) {
+        int stride = 0;
+        int canvasRows = 0;
+        for (Pending p : batch) {
+            stride = Math.max(stride, p.gray.cols() + 2);
+            canvasRows += p.gray.rows() + 2;
+        }
+        long[][] sums = new long[batch.size()][2];
+        byte[] pixels = new byte[canvasRows * stride];
+        try (NativeScope scope = NativeScope.open()) {
+            Mat canvas = scope.own(new Mat(canvasRows, stride, CvType.CV_8UC1));
+            int top = 0;
+            for (Pending p : batch) {
+                int width = p.gray.cols();
+                int height = p.gray.rows();
+                if (width > 0 && height > 0) {
+                    Mat region = scope.view(canvas.submat(top, top + height + 2, 0, width + 2));
+                    Core.copyMakeBorder(p.gray, region, 1, 1, 1, 1, Core.BORDER_REFLECT_101);
+                }
+                top += height + 2;
+            }
+            canvas.get(0, 0, pixels);
+        }
+        FusedLaplacian.RowAccumulator kernel = SharpnessEngine.VECTOR.isAvailable()
+                ? VectorLaplacian::accumulateRow : FusedLaplacian::accumulateRow;
+        int[] up = new int[stride];
+        int[] mid = new int[stride];
+        int[] down = new int[stride];
+        long[] border = new long[2];
+        int top = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Mat gray = batch.get(i).gray;
+            int padded = gray.cols() + 2;
+            int height = gray.rows();
+            if (gray.cols() > 0 && height > 0) {
+                widen(pixels, top * stride, up, padded);
+                widen(pixels, (top + 1) * stride, mid, padded);
+                for (int y = top + 1; y <= top + height; y++) {
+                    widen(pixels, (y + 1) * stride, down, padded);
+                    // The kernel also scores the padding columns; take them back out so only the raster remains
+                    kernel.accumulate(up, mid, down, padded, sums[i]);
+                    border[0] = 0;
+                    border[1] = 0;
+                    FusedLaplacian.accumulateBorderColumns(up, mid, down, padded, border);
+                    sums[i][0] -= border[0];
+                    sums[i][1] -= border[1];
+                    int[] recycled = up;
+                    up = mid;
+                    mid = down;
+                    down = recycled;
+                }
+            }
+            top += height + 2;
+        }
+        return sums;
+    }
+
+    private static void widen(byte[] pixels, int offset, int[] row, int width) {
+        for (int x = 0; x < width; x++) {
+            row[x] = pixels[offset + x] & 0xFF;
+        }
+    }
+
+    /**
+     * One raster waiting for its batch.
+     */
+    static final class Pending {
+
+        final Mat gray;
+        final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        Pending(Mat gray) {
+            this.gray = gray;
+        }
+    }
+}
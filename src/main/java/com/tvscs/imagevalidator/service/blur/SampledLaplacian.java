@@ -0,0 +1,133 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.Random;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Laplacian variance estimated from a stratified random sample of rows, stopping as soon as the confidence interval
+ * lies entirely above or below the blur threshold. Rows are drawn one per horizontal band per round, so the sample
+ * covers the page evenly from the first round; each sampled row is filtered in full with the fused row kernel
+ * (reflect-101 only at the image border, so a row's responses equal the full pass's).
+ * The interval treats rows as the sampling unit (mean squared response per row, finite-population corrected), which
+ * keeps the strong within-row correlation of text lines out of the error estimate. The mean response is ~0 for a
+ * Laplacian, so its square is taken from the same sample without widening the interval.
+ */
+public final class SampledLaplacian {
+
+    /**
+     * @param variance Estimated (or, once every row is scored, exact) population variance of the Laplacian response.
+     * @param halfWidth Confidence half-width around the estimate.
+     * @param rowsScored Rows filtered.
+     * @param rows Rows in the raster.
+     * @param decided True when the interval excludes the threshold (the estimate's side of it is the decision).
+     */
+    public record Estimate(double variance, double halfWidth, int rowsScored, int rows, boolean decided) {
+
+        /**
+         * @return Fraction of the raster's rows that were filtered.
+         */
+        public double sampledFraction() {
+            return rows == 0 ? 0 : (double) rowsScored / rows;
+        }
+    }
+
+    private SampledLaplacian() {
+    }
+
+    /**
+     * @param gray CV_8UC1 Mat, continuous or a submat view (rows are read one at a time; not released here).
+     * @param threshold Blur threshold the decision is made against.
+     * @param z Confidence multiplier (e.g., 3 for ~99.7% two-sided).
+     * @param minRows Rows (= bands) scored before the first decision.
+     * @param maxFraction Fraction of rows after which sampling gives up (undecided; run the full pass instead).
+     * @param vector Use the SIMD row kernel (only when {@link SharpnessEngine#isAvailable()} is true for VECTOR).
+     * @return Estimate, decided or not.
+     */
+    public static Estimate estimate(Mat gray, double threshold, double z, int minRows, double maxFraction,
+                                    boolean vector) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Expected a CV_8UC1 Mat");
+        }
+        FusedLaplacian.RowAccumulator kernel = vector ? VectorLaplacian::accumulateRow : FusedLaplacian::accumulateRow;
+        int width = gray.cols();
+        int height = gray.rows();
+        if (width == 0 || height == 0) {
+            return new Estimate(0, 0, 0, height, true);
+        }
+        int bands = Math.max(1, Math.min(minRows, height));
+        int[][] order = bandOrder(height, bands, new Random(31L * width + height));
+        int budget = (int) Math.min(height, Math.max(bands, Math.ceil(maxFraction * height)));
+
+        byte[] raw = new byte[width];
+        int[] up = new int[width];
+        int[] mid = new int[width];
+        int[] down = new int[width];
+        long[] rowSums = new long[2];
+        long responseSum = 0;
+        // Welford accumulators over the per-row mean squared response
+        double mean = 0;
+        double m2 = 0;
+        int scored = 0;
+        for (int round = 0; scored < budget; round++) {
+            for (int b = 0; b < bands && scored < budget; b++) {
+                if (round >= order[b].length) {
+                    continue;
+                }
+                int y = order[b][round];
+                load(gray, FusedLaplacian.reflect(y - 1, height), raw, up);
+                load(gray, y, raw, mid);
+                load(gray, FusedLaplacian.reflect(y + 1, height), raw, down);
+                rowSums[0] = 0;
+                rowSums[1] = 0;
+                kernel.accumulate(up, mid, down, width, rowSums);
+                responseSum += rowSums[0];
+                double value = (double) rowSums[1] / width;
+                scored++;
+                double delta = value - mean;
+                mean += delta / scored;
+                m2 += delta * (value - mean);
+            }
+            double responseMean = (double) responseSum / ((double) scored * width);
+            double variance = Math.max(0, mean - responseMean * responseMean);
+            double halfWidth = scored < 2 ? Double.POSITIVE_INFINITY
+                    : z * Math.sqrt(m2 / (scored - 1) / scored * (1 - (double) scored / height));
+            if (scored == height || variance - halfWidth >= threshold || variance + halfWidth < threshold) {
+                return new Estimate(variance, scored == height ? 0 : halfWidth, scored, height, true);
+            }
+            if (scored >= budget) {
+                return new Estimate(variance, halfWidth, scored, height, false);
+            }
+        }
+        throw new IllegalStateException("Sampling budget exhausted without an estimate");
+    }
+
+    // Rows of each band in random order; round r draws order[b][r] from every band
+    private static int[][] bandOrder(int height, int bands, Random random) {
+        int[][] order = new int[bands][];
+        for (int b = 0; b < bands; b++) {
+            int from = (int) ((long) b * height / bands);
+            int to = (int) ((long) (b + 1) * height / bands);
+            int[] rows = new int[to - from];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = from + i;
+            }
+            for (int i = rows.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = rows[i];
+                rows[i] = rows[j];
+                rows[j] = swap;
+            }
+            order[b] = rows;
+        }
+        return order;
+    }
+
+    private static void load(Mat gray, int y, byte[] raw, int[] row) {
+        gray.get(y, 0, raw);
+        for (int x = 0; x < raw.length; x++) {
+            row[x] = raw[x] & 0xFF;
+        }
+    }
+}
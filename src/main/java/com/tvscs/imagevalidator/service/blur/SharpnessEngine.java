@@ -0,0 +1,46 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.Locale;
+
+/**
+ * Implementation used to compute the Laplacian-variance sharpness score (app.image.sharpness-engine).
+ */
+public enum SharpnessEngine {
+    /** OpenCV grayscale decode + fused single-pass Laplacian variance. Works for every format OpenCV decodes. */
+    OPENCV,
+    /** Estimate from baseline JPEG DCT coefficients without IDCT; other formats fall back to OPENCV. */
+    DCT,
+    /** Grayscale decode + Laplacian variance in Java SIMD (needs --add-modules jdk.incubator.vector, else OPENCV). */
+    VECTOR,
+    /** Baseline JPEG luma decoded MCU row by MCU row into a three-row window (O(width) memory); others use OPENCV. */
+    STREAMING;
+
+    private static final boolean VECTOR_MODULE_PRESENT =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * @param value Property value (case-insensitive).
+     * @return Matching engine.
+     */
+    public static SharpnessEngine fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown app.image.sharpness-engine: " + value, e);
+        }
+    }
+
+    /**
+     * @return False if the engine's runtime requirements are missing (VECTOR without the incubator module).
+     */
+    public boolean isAvailable() {
+        return this != VECTOR || VECTOR_MODULE_PRESENT;
+    }
+
+    /**
+     * @return Lower-case name as used in properties and responses.
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,68 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.Arrays;
+
+/**
+ * Per-tile Laplacian variance over a grid laid on the grayscale raster, plus the exact global variance.
+ * Tiles whose intensity standard deviation is below a contrast floor (blank paper, flat background) carry no
+ * sharpness information and are left out of the summary statistics.
+ * @param columns Tiles across.
+ * @param rows Tiles down.
+ * @param variances Laplacian variance per tile, row-major.
+ * @param contrasts Intensity standard deviation per tile (gray levels), row-major.
+ * @param globalVariance Laplacian variance of the whole raster (same value as the untiled computation).
+ */
+public record SharpnessMap(int columns, int rows, double[] variances, double[] contrasts, double globalVariance) {
+
+    /**
+     * @param minContrast Contrast floor in gray levels.
+     * @return Variances of the tiles with content, ascending.
+     */
+    public double[] contentVariances(double minContrast) {
+        double[] content = new double[variances.length];
+        int n = 0;
+        for (int i = 0; i < variances.length; i++) {
+            if (contrasts[i] >= minContrast) {
+                content[n++] = variances[i];
+            }
+        }
+        content = Arrays.copyOf(content, n);
+        Arrays.sort(content);
+        return content;
+    }
+
+    /**
+     * @param sorted Ascending values (see {@link #contentVariances(double)}), not empty.
+     * @param pct Percentile in [0, 100] (nearest rank).
+     * @return Percentile value.
+     */
+    public static double percentile(double[] sorted, double pct) {
+        int rank = (int) Math.ceil(pct / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * @param sorted Ascending values (see {@link #contentVariances(double)}), not empty.
+     * @param threshold Sharpness threshold.
+     * @return Fraction of values at or above the threshold.
+     */
+    public static double fractionAtLeast(double[] sorted, double threshold) {
+        int below = 0;
+        while (below < sorted.length && sorted[below] < threshold) {
+            below++;
+        }
+        return (double) (sorted.length - below) / sorted.length;
+    }
+
+    /**
+     * @param minContrast Contrast floor in gray levels.
+     * @return Grid of tile variances (rows x columns), null for tiles without content.
+     */
+    public Double[][] grid(double minContrast) {
+        Double[][] grid = new Double[rows][columns];
+        for (int i = 0; i < variances.length; i++) {
+            grid[i / columns][i % columns] = contrasts[i] >= minContrast ? variances[i] : null;
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import org.opencv.core.Mat;
+
+/**
+ * Sharpness measure on a decoded grayscale raster (higher = sharper).
+ * Implementations are Spring beans collected by {@link SharpnessMetricRegistry}; add a bean to add a metric.
+ * Selected by app.image.sharpness-metric, or per request with the sharpness_metric parameter.
+ */
+public interface SharpnessMetric {
+
+    /**
+     * @return Id used in properties, requests and responses.
+     */
+    String id();
+
+    /**
+     * @param gray CV_8UC1 Mat at the decode scale, possibly a submat view of the scored region (not released here).
+     * @return Sharpness score.
+     */
+    double score(Mat gray);
+
+    /**
+     * @return Score below which a full-scale image is too blurry.
+     */
+    double threshold();
+
+    /**
+     * @return True if the score has calibrated thresholds for reduced-scale decodes (app.image.blur-reduced-factors);
+     *         otherwise the metric always runs on a full-scale decode.
+     */
+    default boolean supportsReducedDecode() {
+        return false;
+    }
+
+    /**
+     * @param width Width of the scored raster.
+     * @param height Height of the scored raster.
+     * @return Bytes the metric allocates while scoring, beyond the raster itself (for memory admission).
+     */
+    default long workingBytes(int width, int height) {
+        // Row passes: three int rows and one byte row
+        return 13L * width;
+    }
+}
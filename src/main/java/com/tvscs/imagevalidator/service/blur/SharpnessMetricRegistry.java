@@ -0,0 +1,52 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sharpness metrics by id, with the configured default (app.image.sharpness-metric).
+ */
+@Component
+public class SharpnessMetricRegistry {
+
+    // Sorted: bean injection order is not fixed, and the ids are listed in error messages
+    private final Map<String, SharpnessMetric> metrics = new TreeMap<>();
+
+    private final SharpnessMetric defaultMetric;
+
+    public SharpnessMetricRegistry(List<SharpnessMetric> metrics,
+                                   @Value("${app.image.sharpness-metric}") String defaultMetricId) {
+        for (SharpnessMetric metric : metrics) {
+            this.metrics.put(metric.id(), metric);
+        }
+        this.defaultMetric = this.metrics.get(defaultMetricId.trim().toLowerCase(Locale.ROOT));
+        if (defaultMetric == null) {
+            throw new IllegalArgumentException("Unknown app.image.sharpness-metric: " + defaultMetricId
+                    + " (available: " + ids() + ")");
+        }
+    }
+
+    /**
+     * @param id Requested metric id (case-insensitive), or null/blank for the configured default.
+     * @return Matching metric, or null if the id is unknown.
+     */
+    public SharpnessMetric resolve(String id) {
+        if (id == null || id.isBlank()) {
+            return defaultMetric;
+        }
+        return metrics.get(id.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return Registered metric ids, in alphabetical order.
+     */
+    public Set<String> ids() {
+        return metrics.keySet();
+    }
+}
@@ -0,0 +1,98 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.io.MatScratchPool;
+import com.tvscs.imagevalidator.service.io.NativeScope;
+
+/**
+ * Finds the region of a page worth scoring for sharpness: the bounding box of the grid cells whose edge density is
+ * high, measured on an area-downscaled copy (halved while the long side is at least twice {@value #ANALYSIS_SIZE} px).
+ * Plain backgrounds, desk surfaces and margins contribute almost no Laplacian response, so leaving them out both
+ * saves the full-resolution pass over them and stops them from diluting the variance of a sharp document.
+ */
+public final class SharpnessRoi {
+
+    // Smallest long side of the analysis copy
+    private static final int ANALYSIS_SIZE = 512;
+
+    private SharpnessRoi() {
+    }
+
+    /**
+     * @param gray Full-resolution CV_8UC1 raster (not released here).
+     * @param grid Cells per side of the density grid.
+     * @param edgeThreshold Minimum |Laplacian| on the analysis copy for a pixel to count as an edge.
+     * @param minDensity Minimum fraction of edge pixels for a cell to belong to the region.
+     * @param maxFraction Regions covering more than this fraction of the frame are not worth cropping.
+     * @param scratch Scratch Mats for the analysis copies (all {@link MatScratchPool#SLOTS} slots are used).
+     * @return Region in full-resolution coordinates (padded by one cell), or null to score the whole frame.
+     */
+    public static Rect find(Mat gray, int grid, double edgeThreshold, double minDensity, double maxFraction,
+                            MatScratchPool.Lease scratch) {
+        int width = gray.cols();
+        int height = gray.rows();
+        if (grid < 2 || width < grid || height < grid) {
+            return null;
+        }
+        try (NativeScope scope = NativeScope.open()) {
+            // Repeated 2x area halving (OpenCV's fast integer path; cheaper than one large fractional step). An odd
+            // last column/row is dropped, which does not matter for a density map
+            Mat small = gray;
+            int slot = 0;
+            while (Math.max(small.cols(), small.rows()) >= 2 * ANALYSIS_SIZE
+                    && Math.min(small.cols(), small.rows()) >= 2 * grid) {
+                Mat even = scope.view(small.submat(0, small.rows() & ~1, 0, small.cols() & ~1));
+                // Slots 0 and 1 alternate: each halving reads the previous one
+                Mat half = scope.view(scratch.mat(slot, even.rows() / 2, even.cols() / 2, CvType.CV_8UC1));
+                slot ^= 1;
+                Imgproc.resize(even, half, new Size(even.cols() / 2, even.rows() / 2), 0, 0, Imgproc.INTER_AREA);
+                small = half;
+            }
+            // Edge mask (0/255), then its mean per cell: cell value = edge density * 255
+            Mat response = scope.view(scratch.mat(2, small.rows(), small.cols(), CvType.CV_16SC1));
+            Mat mask = scope.view(scratch.mat(3, small.rows(), small.cols(), CvType.CV_8UC1));
+            Mat cells = scope.own(new Mat(grid, grid, CvType.CV_8UC1));
+            Imgproc.Laplacian(small, response, CvType.CV_16S, 1, 1, 0, Core.BORDER_REFLECT_101);
+            Core.convertScaleAbs(response, mask);
+            Imgproc.threshold(mask, mask, edgeThreshold, 255, Imgproc.THRESH_BINARY);
+            Imgproc.resize(mask, cells, new Size(grid, grid), 0, 0, Imgproc.INTER_AREA);
+            byte[] density = new byte[grid * grid];
+            cells.get(0, 0, density);
+
+            int minX = grid;
+            int minY = grid;
+            int maxX = -1;
+            int maxY = -1;
+            double cutoff = minDensity * 255;
+            for (int y = 0; y < grid; y++) {
+                for (int x = 0; x < grid; x++) {
+                    if ((density[y * grid + x] & 0xFF) >= cutoff) {
+                        minX = Math.min(minX, x);
+                        minY = Math.min(minY, y);
+                        maxX = Math.max(maxX, x);
+                        maxY = Math.max(maxY, y);
+                    }
+                }
+            }
+            if (maxX < 0) {
+                // No textured cell: nothing to crop to (a blank or uniformly blurry frame is scored whole)
+                return null;
+            }
+            // One cell of margin so edges straddling the boundary keep their neighbourhood
+            int x0 = (int) ((long) Math.max(0, minX - 1) * width / grid);
+            int y0 = (int) ((long) Math.max(0, minY - 1) * height / grid);
+            int x1 = (int) ((long) Math.min(grid, maxX + 2) * width / grid);
+            int y1 = (int) ((long) Math.min(grid, maxY + 2) * height / grid);
+            if ((double) (x1 - x0) * (y1 - y0) > maxFraction * width * height) {
+                return null;
+            }
+            return new Rect(x0, y0, x1 - x0, y1 - y0);
+        }
+    }
+}
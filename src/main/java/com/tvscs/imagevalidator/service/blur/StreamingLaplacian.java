@@ -0,0 +1,111 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.tvscs.imagevalidator.service.jpeg.JpegCoefficientReader;
+import com.tvscs.imagevalidator.service.jpeg.JpegIdct;
+
+/**
+ * Laplacian variance of a baseline JPEG's luma plane without ever holding the decoded image: luma blocks are
+ * inverse-transformed into a strip of at most one MCU row (32 pixel rows), and each completed pixel row is pushed
+ * through a three-row window into the fused Laplacian row kernel. Memory is O(width) regardless of image height.
+ * The IDCT matches libjpeg's, so the result equals the OpenCV grayscale decode + {@link FusedLaplacian}.
+ */
+public final class StreamingLaplacian implements JpegCoefficientReader.BlockListener {
+
+    // Luma block rows buffered until their MCU row completes (vertical sampling factor is at most 4)
+    private static final int STRIP_BLOCK_ROWS = 4;
+
+    private final FusedLaplacian.RowAccumulator kernel;
+    private final long[] sums = new long[2];
+    private final int[] workspace = new int[72];
+
+    private int width;
+    private int height;
+    private int stride;
+    private byte[] strip;
+    private int blockRowsEmitted;
+
+    // Three-row window: rows y-1, y, y+1 once two rows have been seen
+    private int[] up;
+    private int[] mid;
+    private int[] down;
+    private int rowsSeen;
+
+    private StreamingLaplacian(FusedLaplacian.RowAccumulator kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * @param jpeg Encoded JPEG bytes.
+     * @param vector Use the SIMD row kernel (only when {@link SharpnessEngine#isAvailable()} is true for VECTOR).
+     * @return Population variance of the Laplacian response, or NaN if the JPEG flavor is unsupported
+     *         (caller falls back to a full decode).
+     * @throws IOException If the JPEG is corrupt.
+     */
+    public static double variance(ByteBuffer jpeg, boolean vector) throws IOException {
+        StreamingLaplacian laplacian = new StreamingLaplacian(
+                vector ? VectorLaplacian::accumulateRow : FusedLaplacian::accumulateRow);
+        if (!JpegCoefficientReader.read(jpeg, laplacian) || laplacian.strip == null) {
+            return Double.NaN;
+        }
+        return laplacian.finish();
+    }
+
+    @Override
+    public void frame(int width, int height, int blocksWide, int blocksHigh) {
+        this.width = width;
+        this.height = height;
+        this.stride = blocksWide * 8;
+        this.strip = new byte[STRIP_BLOCK_ROWS * 8 * stride];
+        this.up = new int[width];
+        this.mid = new int[width];
+        this.down = new int[width];
+    }
+
+    @Override
+    public void block(int blockX, int blockY, int[] coefficients) {
+        int offset = (blockY % STRIP_BLOCK_ROWS) * 8 * stride + blockX * 8;
+        JpegIdct.inverse(coefficients, workspace, strip, offset, stride);
+    }
+
+    @Override
+    public void rowsComplete(int blockRowLimit) {
+        for (; blockRowsEmitted < blockRowLimit; blockRowsEmitted++) {
+            int base = (blockRowsEmitted % STRIP_BLOCK_ROWS) * 8 * stride;
+            int rows = Math.min(8, height - blockRowsEmitted * 8);
+            for (int r = 0; r < rows; r++) {
+                push(base + r * stride);
+            }
+        }
+    }
+
+    private void push(int offset) {
+        int[] target = rowsSeen == 0 ? mid : down;
+        for (int x = 0; x < width; x++) {
+            target[x] = strip[offset + x] & 0xFF;
+        }
+        rowsSeen++;
+        if (rowsSeen == 1) {
+            return;
+        }
+        // Row 0 reflects onto row 1 above (reflect-101); later rows have their real neighbour in up
+        kernel.accumulate(rowsSeen == 2 ? down : up, mid, down, width, sums);
+        int[] recycled = up;
+        up = mid;
+        mid = down;
+        down = recycled;
+    }
+
+    private double finish() {
+        if (rowsSeen != height) {
+            return Double.NaN;
+        }
+        // Last row: the row below reflects onto the row above (a single row reflects onto itself)
+        kernel.accumulate(height == 1 ? mid : up, mid, height == 1 ? mid : up, width, sums);
+        double n = (double) width * height;
+        double mean = sums[0] / n;
+        return Math.max(0, sums[1] / n - mean * mean);
+    }
+}
@@ -0,0 +1,149 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Tiled variant of {@link FusedLaplacian}: one ForkJoin task per row of tiles, each pulling its own source rows
+ * and accumulating integer Laplacian and intensity sums per tile. Responses at tile edges use the real
+ * neighbouring pixels (reflect-101 only at the image border), so the tile sums add up to the exact global variance.
+ */
+public final class TiledSharpness {
+
+    private TiledSharpness() {
+    }
+
+    /**
+     * @param gray Continuous CV_8UC1 Mat (not released here; only read concurrently).
+     * @param grid Requested tiles per side (capped by the raster size).
+     * @param pool Pool that scores the tile rows, or null to score them on the calling thread.
+     * @return Sharpness map with per-tile and global variance.
+     */
+    public static SharpnessMap compute(Mat gray, int grid, ForkJoinPool pool) {
+        if (gray.type() != CvType.CV_8UC1 || !gray.isContinuous()) {
+            throw new IllegalArgumentException("Expected a continuous CV_8UC1 Mat");
+        }
+        int width = gray.cols();
+        int height = gray.rows();
+        int columns = Math.max(1, Math.min(grid, width));
+        int rows = Math.max(1, Math.min(grid, height));
+        int[] xBounds = bounds(width, columns);
+        int[] yBounds = bounds(height, rows);
+
+        // sums[tile] = {laplacianSum, laplacianSumSq, pixelSum, pixelSumSq}; tile rows write disjoint ranges
+        long[][] sums = new long[columns * rows][4];
+        List<RecursiveAction> bands = new ArrayList<>(rows);
+        for (int ty = 0; ty < rows; ty++) {
+            int tileRow = ty;
+            bands.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    scoreBand(gray, yBounds[tileRow], yBounds[tileRow + 1], xBounds, sums, tileRow * columns);
+                }
+            });
+        }
+        if (pool == null) {
+            bands.forEach(RecursiveAction::invoke);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(bands);
+                }
+            });
+        }
+
+        double[] variances = new double[sums.length];
+        double[] contrasts = new double[sums.length];
+        long laplacianSum = 0;
+        long laplacianSumSq = 0;
+        for (int t = 0; t < sums.length; t++) {
+            double n = (double) (xBounds[t % columns + 1] - xBounds[t % columns])
+                    * (yBounds[t / columns + 1] - yBounds[t / columns]);
+            variances[t] = variance(sums[t][0], sums[t][1], n);
+            contrasts[t] = Math.sqrt(variance(sums[t][2], sums[t][3], n));
+            laplacianSum += sums[t][0];
+            laplacianSumSq += sums[t][1];
+        }
+        double global = variance(laplacianSum, laplacianSumSq, (double) width * height);
+        return new SharpnessMap(columns, rows, variances, contrasts, global);
+    }
+
+    private static void scoreBand(Mat gray, int y0, int y1, int[] xBounds, long[][] sums, int firstTile) {
+        int width = gray.cols();
+        int height = gray.rows();
+        int columns = xBounds.length - 1;
+        byte[] raw = new byte[width];
+        int[] up = new int[width];
+        int[] mid = new int[width];
+        int[] down = new int[width];
+        load(gray, FusedLaplacian.reflect(y0 - 1, height), raw, up);
+        load(gray, y0, raw, mid);
+        for (int y = y0; y < y1; y++) {
+            load(gray, FusedLaplacian.reflect(y + 1, height), raw, down);
+            for (int tx = 0; tx < columns; tx++) {
+                // Interior columns branch-free; the image's first/last column takes reflect-101 neighbours
+                int from = Math.max(1, xBounds[tx]);
+                int to = Math.min(width - 1, xBounds[tx + 1]);
+                long lapSum = 0;
+                long lapSumSq = 0;
+                long pixSum = 0;
+                long pixSumSq = 0;
+                for (int x = from; x < to; x++) {
+                    int r = up[x] + down[x] + mid[x - 1] + mid[x + 1] - 4 * mid[x];
+                    lapSum += r;
+                    lapSumSq += r * r;
+                    pixSum += mid[x];
+                    pixSumSq += mid[x] * mid[x];
+                }
+                long[] tile = sums[firstTile + tx];
+                tile[0] += lapSum;
+                tile[1] += lapSumSq;
+                tile[2] += pixSum;
+                tile[3] += pixSumSq;
+            }
+            addBorderPixel(up, mid, down, 0, width, sums[firstTile]);
+            if (width > 1) {
+                addBorderPixel(up, mid, down, width - 1, width, sums[firstTile + columns - 1]);
+            }
+            int[] recycled = up;
+            up = mid;
+            mid = down;
+            down = recycled;
+        }
+    }
+
+    private static void addBorderPixel(int[] up, int[] mid, int[] down, int x, int width, long[] tile) {
+        int r = up[x] + down[x] + mid[FusedLaplacian.reflect(x - 1, width)] + mid[FusedLaplacian.reflect(x + 1, width)]
+                - 4 * mid[x];
+        tile[0] += r;
+        tile[1] += (long) r * r;
+        tile[2] += mid[x];
+        tile[3] += mid[x] * mid[x];
+    }
+
+    private static int[] bounds(int length, int parts) {
+        int[] bounds = new int[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            bounds[i] = (int) ((long) i * length / parts);
+        }
+        return bounds;
+    }
+
+    private static void load(Mat gray, int y, byte[] raw, int[] row) {
+        gray.get(y, 0, raw);
+        for (int x = 0; x < raw.length; x++) {
+            row[x] = raw[x] & 0xFF;
+        }
+    }
+
+    private static double variance(long sum, long sumSq, double n) {
+        double mean = sum / n;
+        return Math.max(0, sumSq / n - mean * mean);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tvscs.imagevalidator.service.blur;
+
+import org.opencv.core.Mat;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link FusedLaplacian} with the row kernel on SIMD lanes (jdk.incubator.vector).
+ * Same integer sums, so the same variance as the scalar kernel and as Laplacian(CV_64F) + meanStdDev.
+ * Only load this class when {@link SharpnessEngine#isAvailable()} is true for VECTOR.
+ */
+public final class VectorLaplacian {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    // Squared-response lane accumulators are flushed to long before they can overflow. reduceLanesToLong adds the
+    // lanes in int before widening, so the bound covers all lanes together: lanes * interval * 1020^2 < 2^31
+    private static final int FLUSH_INTERVAL = Integer.MAX_VALUE / (SPECIES.length() * 1020 * 1020);
+
+    private VectorLaplacian() {
+    }
+
+    /**
+     * @param gray CV_8UC1 Mat, continuous or a submat view (rows are read one at a time; not released here).
+     * @return Population variance of the Laplacian response (same value as the OpenCV path).
+     */
+    public static double variance(Mat gray) {
+        return FusedLaplacian.variance(gray, VectorLaplacian::accumulateRow);
+    }
+
+    // SIMD row kernel for FusedLaplacian's row window; scalar tail and border columns as in the scalar kernel
+    static void accumulateRow(int[] up, int[] mid, int[] down, int width, long[] sums) {
+        long sum = 0;
+        long sumSq = 0;
+        int x = 1;
+        int bound = 1 + SPECIES.loopBound(Math.max(0, width - 2));
+        IntVector vSum = IntVector.zero(SPECIES);
+        IntVector vSumSq = IntVector.zero(SPECIES);
+        int pending = 0;
+        for (; x < bound; x += SPECIES.length()) {
+            IntVector r = IntVector.fromArray(SPECIES, up, x)
+                    .add(IntVector.fromArray(SPECIES, down, x))
+                    .add(IntVector.fromArray(SPECIES, mid, x - 1))
+                    .add(IntVector.fromArray(SPECIES, mid, x + 1))
+                    .sub(IntVector.fromArray(SPECIES, mid, x).lanewise(VectorOperators.LSHL, 2));
+            vSum = vSum.add(r);
+            vSumSq = vSumSq.add(r.mul(r));
+            if (++pending == FLUSH_INTERVAL) {
+                sumSq += vSumSq.reduceLanesToLong(VectorOperators.ADD);
+                vSumSq = IntVector.zero(SPECIES);
+                pending = 0;
+            }
+        }
+        sum += vSum.reduceLanesToLong(VectorOperators.ADD);
+        sumSq += vSumSq.reduceLanesToLong(VectorOperators.ADD);
+        for (; x < width - 1; x++) {
+            int r = up[x] + down[x] + mid[x - 1] + mid[x + 1] - 4 * mid[x];
+            sum += r;
+            sumSq += (long) r * r;
+        }
+        sums[0] += sum;
+        sums[1] += sumSq;
+        FusedLaplacian.accumulateBorderColumns(up, mid, down, width, sums);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tvscs.imagevalidator.service.compute;
+
+import java.util.Locale;
+
+/**
+ * How CPU is split between concurrent requests and OpenCV's internal threads (app.image.compute-policy).
+ */
+public enum ComputePolicy {
+    /** One compute slot per core, OpenCV single-threaded, tiles scored on the request thread. */
+    THROUGHPUT,
+    /** Few compute slots, each with a share of the cores for OpenCV and the tile pool. */
+    LATENCY,
+    /** Throughput slots; a large image with no other request computing or waiting gets all cores. */
+    AUTO;
+
+    /**
+     * @param value Property value (case-insensitive).
+     * @return Matching policy.
+     */
+    public static ComputePolicy fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown app.image.compute-policy: " + value, e);
+        }
+    }
+
+    /**
+     * @return Lower-case name as used in properties and logs.
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
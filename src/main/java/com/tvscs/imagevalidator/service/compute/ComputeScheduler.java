@@ -0,0 +1,162 @@
+package com.tvscs.imagevalidator.service.compute;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opencv.core.Core;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Coordinates decode/blur concurrency with OpenCV's own parallelism so request threads and OpenCV workers together
+ * never ask for much more than the cores available. Tomcat may run hundreds of request threads; only
+ * app.image.compute-workers of them are inside the decode/blur section at once (the rest wait in arrival order),
+ * and each slot gets cores / workers threads for OpenCV (Core.setNumThreads, process-wide) and the tile pass.
+ * The tile pass runs on a pool owned by the slot for its duration, capped at the slot's threads, so concurrent
+ * slots cannot borrow each other's share. The AUTO policy hands a lone large image every core and drops back to
+ * single-threaded OpenCV under load.
+ */
+@Component
+public class ComputeScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ComputeScheduler.class);
+
+    private final ComputePolicy policy;
+    private final int cores;
+    private final int workers;
+    private final long largeImagePixels;
+    private final Semaphore slots;
+    private final AtomicInteger active = new AtomicInteger();
+    // One pool per slot that can run more than one thread, each capped at that slot's share
+    private final BlockingQueue<ForkJoinPool> tilePools;
+
+    // Last value passed to Core.setNumThreads (0 = not set yet; OpenCV is loaded by the service)
+    private int openCvThreads;
+
+    public ComputeScheduler(@Value("${app.image.compute-policy}") String policy,
+                            @Value("${app.image.compute-workers}") int workers,
+                            @Value("${app.image.compute-auto-large-pixels}") long largeImagePixels,
+                            MeterRegistry meterRegistry) {
+        this.policy = ComputePolicy.fromProperty(policy);
+        this.cores = Runtime.getRuntime().availableProcessors();
+        this.workers = workers > 0 ? workers
+                : this.policy == ComputePolicy.LATENCY ? Math.max(1, cores / 4) : cores;
+        this.largeImagePixels = largeImagePixels;
+        this.slots = new Semaphore(this.workers, true);
+        int slotThreads = switch (this.policy) {
+            case THROUGHPUT -> 1;
+            case LATENCY -> Math.max(1, cores / this.workers);
+            // Only a lone request gets more than one thread
+            case AUTO -> cores;
+        };
+        int pools = slotThreads == 1 ? 0 : this.policy == ComputePolicy.LATENCY ? this.workers : 1;
+        this.tilePools = new ArrayBlockingQueue<>(Math.max(1, pools));
+        for (int i = 0; i < pools; i++) {
+            tilePools.add(boundedPool(slotThreads));
+        }
+        Gauge.builder("image.compute.active", active, AtomicInteger::get)
+                .description("Requests inside the decode/blur section").register(meterRegistry);
+        Gauge.builder("image.compute.queued", slots, Semaphore::getQueueLength)
+                .description("Requests waiting for a compute slot").register(meterRegistry);
+        log.info("Compute policy {}: {} slots on {} cores", this.policy.id(), this.workers, cores);
+    }
+
+    /**
+     * Waits for a compute slot and sets OpenCV's thread count for the work about to run.
+     * @param pixelCount Pixels the request will decode (header dimensions).
+     * @return Slot to close when the decode/blur section is done.
+     */
+    public Slot acquire(long pixelCount) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a compute slot", e);
+        }
+        int concurrent = active.incrementAndGet();
+        int threads = switch (policy) {
+            case THROUGHPUT -> 1;
+            case LATENCY -> Math.max(1, cores / workers);
+            case AUTO -> concurrent == 1 && slots.getQueueLength() == 0 && pixelCount >= largeImagePixels ? cores : 1;
+        };
+        setOpenCvThreads(threads);
+        return new Slot(threads, threads > 1 ? tilePools.poll() : null);
+    }
+
+    /**
+     * Pool that never runs more than the given number of threads: a worker blocked joining a tile row helps or
+     * waits instead of starting a compensating thread.
+     */
+    private static ForkJoinPool boundedPool(int threads) {
+        return new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, threads, 1,
+                pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    private synchronized void setOpenCvThreads(int threads) {
+        if (threads != openCvThreads) {
+            Core.setNumThreads(threads);
+            openCvThreads = threads;
+            log.debug("OpenCV threads set to {}", threads);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        tilePools.forEach(ForkJoinPool::shutdown);
+    }
+
+    /**
+     * One request's share of the CPU; close to release it.
+     */
+    public final class Slot implements AutoCloseable {
+
+        private final int threads;
+        private final ForkJoinPool tilePool;
+        private boolean closed;
+
+        private Slot(int threads, ForkJoinPool tilePool) {
+            this.threads = threads;
+            this.tilePool = tilePool;
+        }
+
+        /**
+         * @return Threads this slot may use for parallel work (1 = stay on the request thread).
+         */
+        public int threads() {
+            return threads;
+        }
+
+        /**
+         * @return This slot's pool for the tile pass (at most {@link #threads()} threads), or null to score tiles on
+         *         the request thread.
+         */
+        public ForkJoinPool tilePool() {
+            return tilePool;
+        }
+
+        /**
+         * Releases the slot; later calls do nothing.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (tilePool != null) {
+                    tilePools.add(tilePool);
+                }
+                active.decrementAndGet();
+                slots.release();
+            }
+        }
+    }
+}
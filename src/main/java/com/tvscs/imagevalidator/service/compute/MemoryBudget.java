@@ -0,0 +1,154 @@
+package com.tvscs.imagevalidator.service.compute;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tvscs.imagevalidator.exceptions.DecodeTooLargeException;
+import com.tvscs.imagevalidator.exceptions.MemoryBudgetExceededException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control on decode memory. Each request reserves its predicted peak footprint (decoded raster plus
+ * working buffers, from the header dimensions) before it decodes, from a fair weighted semaphore counted in KiB, and
+ * gives it back when its Mats are released. Requests that do not fit wait in arrival order for up to
+ * app.image.memory-budget-wait-ms and are then rejected (HTTP 503), so a burst of large uploads queues or sheds load
+ * instead of driving the pod into the OOM killer. A prediction larger than the whole budget (e.g., a forged
+ * 65535x65535 header) could never be admitted and is rejected at once (HTTP 413) without queueing. The budget defaults to app.image.memory-budget-fraction of the
+ * memory visible to the JVM, which is the container limit when one is set.
+ */
+@Component
+public class MemoryBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryBudget.class);
+
+    private final long budgetBytes;
+    private final int budgetKib;
+    private final long waitMillis;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final Counter oversized;
+
+    public MemoryBudget(@Value("${app.image.memory-budget-bytes}") long budgetBytes,
+                        @Value("${app.image.memory-budget-fraction}") double fraction,
+                        @Value("${app.image.memory-budget-wait-ms}") long waitMillis,
+                        MeterRegistry meterRegistry) {
+        long bytes = budgetBytes > 0 ? budgetBytes : (long) (fraction * physicalMemory());
+        // Permits are KiB, so an int covers budgets up to 2 TiB
+        this.budgetKib = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes >> 10));
+        this.budgetBytes = (long) budgetKib << 10;
+        this.waitMillis = waitMillis;
+        this.permits = new Semaphore(budgetKib, true);
+        Gauge.builder("image.memory.budget.used", this, b -> (double) (b.budgetKib - b.permits.availablePermits()) * 1024)
+                .baseUnit("bytes").description("Predicted decode memory reserved by admitted requests")
+                .register(meterRegistry);
+        Gauge.builder("image.memory.budget.queued", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for decode memory").register(meterRegistry);
+        this.rejected = Counter.builder("image.memory.budget.rejected")
+                .description("Requests rejected because the decode memory budget stayed exhausted")
+                .register(meterRegistry);
+        this.oversized = Counter.builder("image.memory.budget.oversized")
+                .description("Requests rejected because their prediction exceeds the whole decode memory budget")
+                .register(meterRegistry);
+        log.info("Decode memory budget: {} MiB", this.budgetBytes >> 20);
+    }
+
+    /**
+     * Reserves a request's predicted footprint, waiting up to the configured time for other requests to finish.
+     * @param bytes Predicted peak native + heap bytes of the decode and scoring.
+     * @return Grant to close once the request's Mats are released.
+     * @throws DecodeTooLargeException If the prediction exceeds the whole budget (thrown at once, without waiting).
+     * @throws MemoryBudgetExceededException If the budget stays exhausted for the wait time.
+     */
+    public Grant acquire(long bytes) {
+        int kib = admissibleKib(bytes);
+        reserve(kib);
+        return new Grant(kib);
+    }
+
+    private int admissibleKib(long bytes) {
+        long kib = Math.max(1, (bytes + 1023) >> 10);
+        if (kib > budgetKib) {
+            oversized.increment();
+            log.warn("Decode memory prediction of {} MiB exceeds the {} MiB budget", kib >> 10, budgetKib >> 10);
+            throw new DecodeTooLargeException(String.format(
+                    "Image needs about %d MiB to decode, more than this server allows (%d MiB)", kib >> 10,
+                    budgetKib >> 10));
+        }
+        return (int) kib;
+    }
+
+    private void reserve(int kib) {
+        try {
+            if (!permits.tryAcquire(kib, waitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                log.warn("Decode memory budget exhausted: {} KiB requested, {} KiB free, {} queued", kib,
+                        permits.availablePermits(), permits.getQueueLength());
+                throw new MemoryBudgetExceededException("Server is busy processing other images; retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for decode memory", e);
+        }
+    }
+
+    /**
+     * @return Budget in bytes (rounded down to whole KiB).
+     */
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    private static long physicalMemory() {
+        // Container-aware since JDK 14: reports the cgroup memory limit inside a container
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getTotalMemorySize();
+    }
+
+    /**
+     * One request's reservation; close to return it.
+     */
+    public final class Grant implements AutoCloseable {
+
+        private int kib;
+        private boolean closed;
+
+        private Grant(int kib) {
+            this.kib = kib;
+        }
+
+        /**
+         * Grows the reservation to a larger prediction, waiting like {@link MemoryBudget#acquire(long)}; a smaller
+         * prediction keeps the current reservation.
+         * @param bytes New predicted peak bytes.
+         * @throws DecodeTooLargeException If the prediction exceeds the whole budget (the grant keeps what it had).
+         * @throws MemoryBudgetExceededException If the extra memory stays unavailable for the wait time.
+         */
+        public void extend(long bytes) {
+            int target = admissibleKib(bytes);
+            if (!closed && target > kib) {
+                reserve(target - kib);
+                kib = target;
+            }
+        }
+
+        /**
+         * Returns the reservation; later calls do nothing.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                permits.release(kib);
+            }
+        }
+    }
+}
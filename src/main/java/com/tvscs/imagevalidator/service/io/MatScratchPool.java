@@ -0,0 +1,186 @@
+package com.tvscs.imagevalidator.service.io;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Striped pool of reusable native scratch Mats for the blur path's intermediates (pyramid levels, ROI analysis
+ * copies). A request leases one stripe for its compute section; each stripe has {@value #SLOTS} slots whose backing
+ * Mat grows to the largest size requested so far (Mat.create) and hands out submat views of it, so steady-state
+ * requests allocate no pixel buffers and large buffers are not mmap'ed and unmapped per request. Only about
+ * app.image.compute-workers requests compute at once, so a few stripes cover the load; when all are leased the
+ * request gets one-off Mats. Stripes idle for app.image.mat-scratch-idle-trim-ms are freed.
+ * The decoded raster itself is allocated by imdecode, which cannot decode into a caller's buffer from Java.
+ */
+@Component
+public class MatScratchPool {
+
+    /** Slots per stripe; views of the same slot share memory, so live intermediates need distinct slots. */
+    public static final int SLOTS = 4;
+
+    private static final Logger log = LoggerFactory.getLogger(MatScratchPool.class);
+
+    private final Stripe[] stripes;
+    private final long maxRetainedBytes;
+    private final long idleTrimNanos;
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    public MatScratchPool(@Value("${app.image.mat-scratch-stripes}") int stripes,
+                          @Value("${app.image.mat-scratch-max-retained-bytes}") long maxRetainedBytes,
+                          @Value("${app.image.mat-scratch-idle-trim-ms}") long idleTrimMs,
+                          MeterRegistry meterRegistry) {
+        int count = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.idleTrimNanos = idleTrimMs * 1_000_000L;
+        Gauge.builder("image.mat.scratch.retained", retainedBytes, AtomicLong::get).baseUnit("bytes")
+                .description("Native scratch memory kept by the Mat pool").register(meterRegistry);
+    }
+
+    /**
+     * @return A lease that never pools (every Mat is one-off), for callers outside the request path such as tests.
+     */
+    public static Lease unpooled() {
+        return new Lease(null, null);
+    }
+
+    /**
+     * Claims a free stripe, preferring the calling thread's home stripe.
+     * @return Lease to close when the request's intermediates are released; never blocks.
+     */
+    public Lease lease() {
+        int home = (int) (Thread.currentThread().getId() % stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(home + i) % stripes.length];
+            if (stripe.leased.compareAndSet(false, true)) {
+                return new Lease(this, stripe);
+            }
+        }
+        log.debug("All {} scratch stripes leased, using one-off Mats", stripes.length);
+        return new Lease(null, null);
+    }
+
+    /**
+     * Frees the slots of stripes that have not been leased for the idle period (runs every idle period).
+     */
+    @Scheduled(fixedDelayString = "${app.image.mat-scratch-idle-trim-ms}")
+    public void trimIdle() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            if (now - stripe.lastUsedNanos >= idleTrimNanos && stripe.leased.compareAndSet(false, true)) {
+                long freed = stripe.release();
+                stripe.leased.set(false);
+                if (freed > 0) {
+                    retainedBytes.addAndGet(-freed);
+                    log.debug("Trimmed idle scratch stripe ({} bytes)", freed);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Stripe stripe : stripes) {
+            retainedBytes.addAndGet(-stripe.release());
+        }
+    }
+
+    /**
+     * Exclusive use of one stripe's slots until closed.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final MatScratchPool pool;
+        private final Stripe stripe;
+        private boolean closed;
+
+        private Lease(MatScratchPool pool, Stripe stripe) {
+            this.pool = pool;
+            this.stripe = stripe;
+        }
+
+        /**
+         * Returns a rows x cols Mat of the given type backed by the slot's buffer (grown if too small), or a
+         * one-off Mat when the lease is unpooled or the buffer would exceed the retained limit. Either way the
+         * caller releases it like any other Mat; a view stays valid after its slot is regrown or trimmed.
+         * @param slot Slot index below {@link #SLOTS}; earlier views of the same slot are overwritten.
+         * @param rows Rows.
+         * @param cols Columns.
+         * @param type OpenCV type, e.g. CvType.CV_8UC1.
+         * @return Mat of exactly rows x cols (not necessarily continuous).
+         */
+        public Mat mat(int slot, int rows, int cols, int type) {
+            if (stripe == null) {
+                return new Mat(rows, cols, type);
+            }
+            Mat backing = stripe.slots[slot];
+            if (backing == null) {
+                // Created on first use: OpenCV's native library is loaded by the service, after this bean exists
+                backing = new Mat();
+                stripe.slots[slot] = backing;
+            }
+            if (backing.type() != type || backing.rows() < rows || backing.cols() < cols) {
+                boolean sameType = backing.type() == type && !backing.empty();
+                int grownRows = sameType ? Math.max(rows, backing.rows()) : rows;
+                int grownCols = sameType ? Math.max(cols, backing.cols()) : cols;
+                long bytes = (long) grownRows * grownCols * CvType.ELEM_SIZE(type);
+                if (bytes > pool.maxRetainedBytes) {
+                    return new Mat(rows, cols, type);
+                }
+                long previous = stripe.bytes[slot];
+                backing.create(grownRows, grownCols, type);
+                stripe.bytes[slot] = bytes;
+                pool.retainedBytes.addAndGet(bytes - previous);
+            }
+            return backing.submat(0, rows, 0, cols);
+        }
+
+        /**
+         * Returns the stripe to the pool (the slots keep their buffers); later calls do nothing.
+         */
+        @Override
+        public void close() {
+            if (stripe != null && !closed) {
+                closed = true;
+                stripe.lastUsedNanos = System.nanoTime();
+                stripe.leased.set(false);
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        final AtomicBoolean leased = new AtomicBoolean();
+        final Mat[] slots = new Mat[SLOTS];
+        final long[] bytes = new long[SLOTS];
+        volatile long lastUsedNanos = System.nanoTime();
+
+        // Caller holds the stripe; returns the bytes freed
+        long release() {
+            long freed = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                if (slots[i] != null) {
+                    slots[i].release();
+                }
+                freed += bytes[i];
+                bytes[i] = 0;
+            }
+            return freed;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.tvscs.imagevalidator.service.io;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Publishes {@link NativeScope}'s accounting (native bytes held by open scopes, scopes leaked without being closed)
+ * and switches on leak tracing from app.image.native-leak-tracing.
+ */
+@Component
+public class NativeMemoryMetrics {
+
+    public NativeMemoryMetrics(@Value("${app.image.native-leak-tracing}") boolean leakTracing,
+                               MeterRegistry meterRegistry) {
+        NativeScope.setTracing(leakTracing);
+        Gauge.builder("image.native.live", NativeScope::liveBytes).baseUnit("bytes")
+                .description("Native Mat memory owned by open scopes").register(meterRegistry);
+        FunctionCounter.builder("image.native.leaks", NativeScope.class, c -> NativeScope.leaks())
+                .description("Native scopes garbage-collected without being closed").register(meterRegistry);
+    }
+}
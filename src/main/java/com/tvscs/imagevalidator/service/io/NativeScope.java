@@ -0,0 +1,134 @@
+package com.tvscs.imagevalidator.service.io;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owner of the native Mats created by one piece of work: everything registered is released when the scope closes
+ * (in reverse order), on every path including exceptions, so use it with try-with-resources. Owned Mats count
+ * towards {@link #liveBytes()} until then; views (submat, wrapped upload buffers, scratch views) are released but
+ * not counted, since their memory belongs to someone else. A scope that becomes unreachable without being closed is
+ * reported as a leak (with the stack trace of where it was opened when tracing is on); its Mats are then left to
+ * OpenCV's finalizer rather than released from the cleaner thread, because a leaked Mat may still be in use.
+ */
+public final class NativeScope implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeScope.class);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicLong LIVE_BYTES = new AtomicLong();
+    private static final AtomicLong LEAKS = new AtomicLong();
+
+    private static volatile boolean tracing;
+
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+
+    private NativeScope() {
+        this.state = new State(tracing ? new Throwable("Native scope opened here") : null);
+        this.cleanable = CLEANER.register(this, state);
+    }
+
+    /**
+     * @return New scope; close it (try-with-resources) when its Mats are no longer needed.
+     */
+    public static NativeScope open() {
+        return new NativeScope();
+    }
+
+    /**
+     * Registers a Mat that owns its pixel buffer (a decode, a new Mat, an OpenCV output); register it once the
+     * buffer exists so its size is counted.
+     * @param mat Mat to release on close (may be empty).
+     * @return The same Mat.
+     */
+    public <T extends Mat> T own(T mat) {
+        long bytes = mat.total() * mat.elemSize();
+        state.add(mat, bytes);
+        LIVE_BYTES.addAndGet(bytes);
+        return mat;
+    }
+
+    /**
+     * Registers a Mat header over memory owned elsewhere (submat, {@link UploadBufferPool#wrap}, scratch views).
+     * @param mat Mat to release on close.
+     * @return The same Mat.
+     */
+    public <T extends Mat> T view(T mat) {
+        state.add(mat, 0);
+        return mat;
+    }
+
+    /**
+     * Releases every registered Mat, newest first; later calls do nothing.
+     */
+    @Override
+    public void close() {
+        state.closed = true;
+        cleanable.clean();
+    }
+
+    /**
+     * @return Bytes held by owned Mats of scopes that are still open.
+     */
+    public static long liveBytes() {
+        return LIVE_BYTES.get();
+    }
+
+    /**
+     * @return Scopes found unreachable without having been closed.
+     */
+    public static long leaks() {
+        return LEAKS.get();
+    }
+
+    /**
+     * @param enabled Capture the opening stack trace of every scope, for leak reports (costly; debugging only).
+     */
+    public static void setTracing(boolean enabled) {
+        tracing = enabled;
+    }
+
+    // Cleaning action: must not reference the scope itself, or the scope could never become unreachable
+    private static final class State implements Runnable {
+
+        private final Throwable openedAt;
+        private final List<Mat> mats = new ArrayList<>(4);
+        private long bytes;
+        private volatile boolean closed;
+
+        State(Throwable openedAt) {
+            this.openedAt = openedAt;
+        }
+
+        void add(Mat mat, long size) {
+            mats.add(mat);
+            bytes += size;
+        }
+
+        @Override
+        public void run() {
+            LIVE_BYTES.addAndGet(-bytes);
+            if (closed) {
+                for (int i = mats.size() - 1; i >= 0; i--) {
+                    mats.get(i).release();
+                }
+            } else {
+                LEAKS.incrementAndGet();
+                if (openedAt != null) {
+                    log.warn("Native scope with {} Mats ({} bytes) was never closed", mats.size(), bytes, openedAt);
+                } else {
+                    log.warn("Native scope with {} Mats ({} bytes) was never closed; set "
+                            + "app.image.native-leak-tracing=true to see where it was opened", mats.size(), bytes);
+                }
+            }
+            mats.clear();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.tvscs.imagevalidator.service.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Per-thread reusable direct (off-heap) buffers for upload bytes.
+ * The multipart stream is copied once into native memory; ImageIO reads it through {@link ByteBufferInputStream}
+ * and OpenCV decodes straight from it via {@link #wrap(ByteBuffer)}, so no heap byte[] of the upload is created.
+ * Uploads at or above Spring's multipart spill threshold are already on disk: those are moved out of the
+ * container's temp location and memory-mapped read-only instead of being copied.
+ * Raw request bodies can be streamed in with an inspector that stops the transfer early.
+ */
+@Component
+public class UploadBufferPool {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadBufferPool.class);
+
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<>();
+
+    // Buffers above this size are used once and dropped instead of being kept by the worker thread
+    @Value("${app.image.upload-buffer-max-retained-bytes}")
+    private int maxRetainedBytes;
+
+    // Parts this large were written to a temp file by the container (spring.servlet.multipart.file-size-threshold)
+    @Value("${spring.servlet.multipart.file-size-threshold}")
+    private DataSize spillThreshold;
+
+    @Value("${app.image.mmap-dir}")
+    private String mmapDir;
+
+    /**
+     * Makes the upload's bytes available to the probe and decoders.
+     * Disk-spilled uploads are memory-mapped; smaller ones are streamed into this thread's direct buffer.
+     * @param file Uploaded MultipartFile.
+     * @return Upload bytes; close it when validation is done.
+     * @throws IOException If the upload cannot be read or mapped.
+     */
+    public UploadData open(MultipartFile file) throws IOException {
+        long threshold = spillThreshold.toBytes();
+        if (threshold > 0 && file.getSize() >= threshold) {
+            return map(file);
+        }
+        try (InputStream in = file.getInputStream()) {
+            return read(in, file.getSize(), Long.MAX_VALUE, null);
+        }
+    }
+
+    /**
+     * Streams a body into this thread's direct buffer.
+     * After every read the inspector sees the bytes received so far (view with position 0, limit = bytes read)
+     * and can stop the transfer, e.g. once the image header has been seen; the rest of the body is left unread.
+     * The returned buffer is only valid until the next call on the same thread.
+     * @param in Body stream (not closed here).
+     * @param sizeHint Expected size in bytes (Content-Length), or -1 if unknown.
+     * @param maxBytes Largest body accepted.
+     * @param inspector Returns false to stop reading; null reads to end of stream.
+     * @return Bytes read; {@link UploadData#isComplete()} is false if the inspector stopped the transfer.
+     * @throws IOException If the stream cannot be read or the size hint is too large to buffer.
+     * @throws MaxUploadSizeExceededException If the body is larger than maxBytes.
+     */
+    public UploadData read(InputStream in, long sizeHint, long maxBytes, Predicate<ByteBuffer> inspector) throws IOException {
+        if (sizeHint > maxBytes) {
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+        if (sizeHint > Integer.MAX_VALUE) {
+            throw new IOException("Upload too large to buffer: " + sizeHint + " bytes");
+        }
+        int expected = (int) Math.max(0, sizeHint);
+        // With an inspector the body may be abandoned after the header: start small, size up on the first grow
+        ByteBuffer buffer = acquire(inspector != null ? Math.min(expected, MIN_CAPACITY) : expected);
+        if (inspector != null) {
+            // The pooled buffer may be far larger: read through a window that widens as the inspector asks for more
+            buffer.limit(Math.min(buffer.capacity(), MIN_CAPACITY));
+        }
+        ReadableByteChannel channel = Channels.newChannel(in);
+        boolean complete = true;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (buffer.limit() < buffer.capacity()) {
+                    buffer.limit((int) Math.min(buffer.capacity(), buffer.limit() * 2L));
+                } else {
+                    // Declared size was wrong or unknown; grow and keep reading
+                    buffer = grow(buffer, expected);
+                }
+            }
+            int n = channel.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            if (buffer.position() > maxBytes) {
+                throw new MaxUploadSizeExceededException(maxBytes);
+            }
+            if (n > 0 && inspector != null && !inspector.test(buffer.duplicate().flip())) {
+                complete = false;
+                break;
+            }
+        }
+        buffer.flip();
+        return new UploadData(buffer, null, complete);
+    }
+
+    /**
+     * Wraps the buffer's bytes in a 1xN CV_8UC1 Mat header that points at the same native memory (no copy).
+     * The Mat does not own the memory: release it before the buffer is reused.
+     * @param data Direct buffer with position 0.
+     * @return Mat header over data[0, limit).
+     */
+    public static Mat wrap(ByteBuffer data) {
+        if (!data.isDirect() || data.position() != 0) {
+            throw new IllegalArgumentException("Only direct buffers starting at position 0 can be wrapped");
+        }
+        return new Mat(1, data.limit(), CvType.CV_8UC1, data);
+    }
+
+    private UploadData map(MultipartFile file) throws IOException {
+        Path dir = mmapDir.isBlank() ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(mmapDir);
+        Path target = dir.resolve("upload-" + UUID.randomUUID() + ".img").toAbsolutePath();
+        try {
+            // transferTo(File) goes through Part.write, which renames the container's spill file when the target is
+            // on the same file system (mmap-dir); transferTo(Path) would copy the whole upload through a stream
+            file.transferTo(target.toFile());
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                log.debug("Memory-mapped spilled upload {} ({} bytes)", target, channel.size());
+                return new UploadData(mapped, target);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private ByteBuffer acquire(int size) {
+        ByteBuffer buffer = buffers.get();
+        if (buffer == null || buffer.capacity() < size + 1) {
+            // +1 so a correctly sized upload hits EOF without triggering a grow
+            int capacity = size < (1 << 29) ? Math.max(MIN_CAPACITY, Integer.highestOneBit(size) << 1) : size + 1;
+            buffer = ByteBuffer.allocateDirect(capacity);
+            if (capacity <= maxRetainedBytes) {
+                buffers.set(buffer);
+            } else {
+                log.debug("Upload buffer of {} bytes exceeds retained limit, not caching", capacity);
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private ByteBuffer grow(ByteBuffer full, int expected) {
+        int capacity = full.capacity() <= expected ? expected + 1 : full.capacity() * 2;
+        ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+        full.flip();
+        larger.put(full);
+        if (larger.capacity() <= maxRetainedBytes) {
+            buffers.set(larger);
+        }
+        return larger;
+    }
+}
@@ -0,0 +1,66 @@
+package com.tvscs.imagevalidator.service.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffered upload bytes for one validation request: either this thread's pooled direct buffer
+ * or a read-only memory mapping of a spilled upload file. Closing deletes the spill file, if any.
+ */
+public final class UploadData implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadData.class);
+
+    private final ByteBuffer data;
+    private final Path mappedFile;
+    private final boolean complete;
+
+    UploadData(ByteBuffer data, Path mappedFile) {
+        this(data, mappedFile, true);
+    }
+
+    UploadData(ByteBuffer data, Path mappedFile, boolean complete) {
+        this.data = data;
+        this.mappedFile = mappedFile;
+        this.complete = complete;
+    }
+
+    /**
+     * @return Encoded image bytes (direct buffer, position 0, limit = size).
+     */
+    public ByteBuffer data() {
+        return data;
+    }
+
+    /**
+     * @return True if the bytes are a memory mapping of a file rather than a heap/direct copy.
+     */
+    public boolean isMapped() {
+        return mappedFile != null;
+    }
+
+    /**
+     * @return False if reading stopped before the end of the body (only the leading bytes are present).
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void close() {
+        if (mappedFile == null) {
+            return;
+        }
+        // The mapping itself is unmapped when the buffer is collected; unlinking a mapped file is safe on POSIX
+        try {
+            Files.deleteIfExists(mappedFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete spilled upload {}: {}", mappedFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package com.tvscs.imagevalidator.service.jpeg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Entropy decoder for baseline (SOF0/SOF1, 8-bit, Huffman) JPEGs that stops at the quantized DCT coefficients.
+ * Luma (first component) blocks are handed to a {@link BlockListener} dequantized and in natural order;
+ * chroma blocks are decoded only to advance the bitstream. No IDCT, upsampling or color conversion is done.
+ * Progressive, arithmetic-coded, lossless, 12-bit and Adobe RGB/CMYK JPEGs are reported as unsupported.
+ */
+public final class JpegCoefficientReader {
+
+    /** Natural (row-major) index of each zig-zag position. */
+    public static final int[] ZIGZAG = {
+            0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5,
+            12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28,
+            35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+            58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    /**
+     * Receives luma blocks as they are decoded.
+     */
+    public interface BlockListener {
+
+        /**
+         * Called once the frame header has been parsed, before any block.
+         * @param width Image width in pixels.
+         * @param height Image height in pixels.
+         * @param blocksWide Luma blocks per row that lie inside the image.
+         * @param blocksHigh Luma block rows that lie inside the image.
+         */
+        default void frame(int width, int height, int blocksWide, int blocksHigh) {
+        }
+
+        /**
+         * @param blockX Luma block column.
+         * @param blockY Luma block row.
+         * @param coefficients 64 dequantized coefficients in natural order; the array is reused for the next block.
+         */
+        void block(int blockX, int blockY, int[] coefficients);
+
+        /**
+         * Called after every luma block with row index below blockRowLimit has been delivered.
+         * @param blockRowLimit Number of complete luma block rows so far.
+         */
+        default void rowsComplete(int blockRowLimit) {
+        }
+    }
+
+    private final ByteBuffer data;
+    private int pos;
+
+    // Frame
+    private int width;
+    private int height;
+    private Component[] components;
+    private int maxH;
+    private int maxV;
+    private int adobeTransform = -1;
+    private int restartInterval;
+
+    private final int[][] quantTables = new int[4][];
+    private final Huffman[] dcTables = new Huffman[4];
+    private final Huffman[] acTables = new Huffman[4];
+
+    // Entropy-coded segment state
+    private int bitBuf;
+    private int bitCnt;
+    private boolean markerHit;
+
+    private JpegCoefficientReader(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Decodes all luma blocks of a baseline JPEG.
+     * @param data Encoded JPEG (read with absolute gets; position/limit are not changed).
+     * @param listener Receiver of luma blocks.
+     * @return True if the whole luma plane was delivered; false if the JPEG flavor is unsupported.
+     * @throws IOException If the stream is corrupt.
+     */
+    public static boolean read(ByteBuffer data, BlockListener listener) throws IOException {
+        return new JpegCoefficientReader(data).decode(listener);
+    }
+
+    private boolean decode(BlockListener listener) throws IOException {
+        int limit = data.limit();
+        if (limit < 4 || u8(0) != 0xFF || u8(1) != 0xD8) {
+            return false;
+        }
+        pos = 2;
+        boolean lumaDone = false;
+        while (!lumaDone) {
+            int marker = nextMarker();
+            if (marker < 0 || marker == 0xD9) {
+                throw new IOException("JPEG ended before the luma scan");
+            }
+            if (marker == 0xD8 || (marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                continue;
+            }
+            if (pos + 2 > limit) {
+                throw new IOException("Truncated JPEG segment 0x" + Integer.toHexString(marker));
+            }
+            int segmentLength = u16(pos);
+            int segmentStart = pos + 2;
+            int segmentEnd = pos + segmentLength;
+            if (segmentLength < 2 || segmentEnd > limit) {
+                throw new IOException("Truncated JPEG segment 0x" + Integer.toHexString(marker));
+            }
+            switch (marker) {
+                case 0xC0, 0xC1 -> {
+                    if (!readFrame(segmentStart, segmentEnd, listener)) {
+                        return false;
+                    }
+                }
+                case 0xC2, 0xC3, 0xC5, 0xC6, 0xC7, 0xC9, 0xCA, 0xCB, 0xCD, 0xCE, 0xCF -> {
+                    return false;
+                }
+                case 0xC4 -> readHuffmanTables(segmentStart, segmentEnd);
+                case 0xDB -> readQuantTables(segmentStart, segmentEnd);
+                case 0xDD -> {
+                    if (segmentLength < 4) {
+                        throw new IOException("Malformed DRI segment");
+                    }
+                    restartInterval = u16(segmentStart);
+                }
+                case 0xEE -> {
+                    if (segmentLength >= 14 && u8(segmentStart) == 'A' && u8(segmentStart + 1) == 'd') {
+                        adobeTransform = u8(segmentStart + 11);
+                    }
+                }
+                case 0xDA -> {
+                    if (components == null) {
+                        throw new IOException("JPEG scan before frame header");
+                    }
+                    if (components.length == 3 && adobeTransform == 0 || components.length == 4) {
+                        // Component 0 is not luma (RGB or CMYK)
+                        return false;
+                    }
+                    pos = segmentEnd;
+                    lumaDone = readScan(segmentStart, segmentEnd, listener);
+                    continue;
+                }
+                default -> {
+                    // APPn, COM and other segments are skipped
+                }
+            }
+            pos = segmentEnd;
+        }
+        return true;
+    }
+
+    private boolean readFrame(int p, int end, BlockListener listener) throws IOException {
+        if (p + 6 > end) {
+            throw new IOException("Malformed SOF segment");
+        }
+        if (u8(p) != 8) {
+            return false;
+        }
+        height = u16(p + 1);
+        width = u16(p + 3);
+        int count = u8(p + 5);
+        if (height == 0 || width == 0 || count == 0) {
+            // Height defined by a DNL marker is not supported
+            return false;
+        }
+        if (p + 6 + count * 3 > end) {
+            throw new IOException("Malformed SOF segment");
+        }
+        components = new Component[count];
+        for (int i = 0; i < count; i++) {
+            int q = p + 6 + i * 3;
+            Component c = new Component();
+            c.id = u8(q);
+            c.h = u8(q + 1) >> 4;
+            c.v = u8(q + 1) & 15;
+            c.quant = u8(q + 2) & 3;
+            if (c.h < 1 || c.h > 4 || c.v < 1 || c.v > 4) {
+                throw new IOException("Corrupt JPEG data: sampling factor out of range");
+            }
+            components[i] = c;
+            maxH = Math.max(maxH, c.h);
+            maxV = Math.max(maxV, c.v);
+        }
+        for (Component c : components) {
+            c.blocksWide = ceilDiv(ceilDiv(width * c.h, maxH), 8);
+            c.blocksHigh = ceilDiv(ceilDiv(height * c.v, maxV), 8);
+        }
+        listener.frame(width, height, components[0].blocksWide, components[0].blocksHigh);
+        return true;
+    }
+
+    private void readQuantTables(int p, int end) throws IOException {
+        while (p < end) {
+            int pq = u8(p) >> 4;
+            int tq = u8(p) & 3;
+            p++;
+            if (pq > 1 || p + (pq == 0 ? 64 : 128) > end) {
+                throw new IOException("Malformed DQT segment");
+            }
+            int[] table = new int[64];
+            for (int k = 0; k < 64; k++) {
+                table[ZIGZAG[k]] = pq == 0 ? u8(p + k) : u16(p + 2 * k);
+            }
+            p += pq == 0 ? 64 : 128;
+            quantTables[tq] = table;
+        }
+        if (p != end) {
+            throw new IOException("Malformed DQT segment");
+        }
+    }
+
+    private void readHuffmanTables(int p, int end) throws IOException {
+        while (p < end) {
+            int tc = u8(p) >> 4;
+            int th = u8(p) & 3;
+            if (tc > 1 || p + 17 > end) {
+                throw new IOException("Malformed DHT segment");
+            }
+            int[] counts = new int[16];
+            int total = 0;
+            for (int i = 0; i < 16; i++) {
+                counts[i] = u8(p + 1 + i);
+                total += counts[i];
+            }
+            if (total > 256 || p + 17 + total > end) {
+                throw new IOException("Malformed DHT segment");
+            }
+            int[] symbols = new int[total];
+            for (int i = 0; i < total; i++) {
+                symbols[i] = u8(p + 17 + i);
+                // A DC symbol is the magnitude category of the difference; receive() takes at most 16 bits
+                if (tc == 0 && symbols[i] > 15) {
+                    throw new IOException("Malformed DHT segment");
+                }
+            }
+            p += 17 + total;
+            Huffman table = new Huffman(counts, symbols);
+            if (tc == 0) {
+                dcTables[th] = table;
+            } else {
+                acTables[th] = table;
+            }
+        }
+    }
+
+    /**
+     * Decodes one scan; returns true once every luma block has been delivered.
+     */
+    private boolean readScan(int p, int end, BlockListener listener) throws IOException {
+        int count = u8(p);
+        if (count == 0 || count > 4 || p + 1 + count * 2 + 3 > end) {
+            throw new IOException("Malformed SOS segment");
+        }
+        Component[] scan = new Component[count];
+        for (int i = 0; i < count; i++) {
+            int id = u8(p + 1 + i * 2);
+            int tables = u8(p + 2 + i * 2);
+            Component c = null;
+            for (Component candidate : components) {
+                if (candidate.id == id) {
+                    c = candidate;
+                }
+            }
+            if (c == null) {
+                throw new IOException("JPEG scan references unknown component " + id);
+            }
+            int td = tables >> 4;
+            int ta = tables & 15;
+            if (td > 3 || ta > 3) {
+                throw new IOException("JPEG scan references an undefined table");
+            }
+            c.dc = dcTables[td];
+            c.ac = acTables[ta];
+            c.quantTable = quantTables[c.quant];
+            if (c.dc == null || c.ac == null || c.quantTable == null) {
+                throw new IOException("JPEG scan references an undefined table");
+            }
+            c.pred = 0;
+            scan[i] = c;
+        }
+        Component luma = components[0];
+        boolean hasLuma = false;
+        for (Component c : scan) {
+            hasLuma |= c == luma;
+        }
+
+        bitBuf = 0;
+        bitCnt = 0;
+        markerHit = false;
+        int[] coefficients = new int[64];
+        int mcusWide;
+        int mcusHigh;
+        if (count == 1) {
+            mcusWide = scan[0].blocksWide;
+            mcusHigh = scan[0].blocksHigh;
+        } else {
+            mcusWide = ceilDiv(width, 8 * maxH);
+            mcusHigh = ceilDiv(height, 8 * maxV);
+        }
+        long blocksPerMcu = 0;
+        for (Component c : scan) {
+            blocksPerMcu += count == 1 ? 1 : c.h * c.v;
+        }
+        // Every block takes at least a 1-bit DC code and a 1-bit AC code, so the rest of the file bounds the block
+        // count; past the end of the data the decoder is fed zeros, which would walk a forged 65535x65535 frame
+        if ((long) mcusWide * mcusHigh * blocksPerMcu > 4L * (data.limit() - pos) + 64) {
+            throw new IOException("JPEG scan data too short for the declared " + width + "x" + height + " frame");
+        }
+        int mcusToRestart = restartInterval;
+        for (int my = 0; my < mcusHigh; my++) {
+            for (int mx = 0; mx < mcusWide; mx++) {
+                if (restartInterval > 0) {
+                    if (mcusToRestart == 0) {
+                        restart(scan);
+                        mcusToRestart = restartInterval;
+                    }
+                    mcusToRestart--;
+                }
+                if (count == 1) {
+                    Component c = scan[0];
+                    if (c == luma) {
+                        decodeBlock(c, coefficients);
+                        listener.block(mx, my, coefficients);
+                    } else {
+                        decodeBlock(c, null);
+                    }
+                    continue;
+                }
+                for (Component c : scan) {
+                    for (int v = 0; v < c.v; v++) {
+                        for (int h = 0; h < c.h; h++) {
+                            if (c != luma) {
+                                decodeBlock(c, null);
+                                continue;
+                            }
+                            decodeBlock(c, coefficients);
+                            int bx = mx * c.h + h;
+                            int by = my * c.v + v;
+                            // Interleaved MCUs pad past the image edge; those blocks are not part of the plane
+                            if (bx < c.blocksWide && by < c.blocksHigh) {
+                                listener.block(bx, by, coefficients);
+                            }
+                        }
+                    }
+                }
+            }
+            if (hasLuma) {
+                listener.rowsComplete(Math.min(luma.blocksHigh, count == 1 ? my + 1 : (my + 1) * luma.v));
+            }
+        }
+        skipToMarker();
+        return hasLuma;
+    }
+
+    private void decodeBlock(Component c, int[] out) throws IOException {
+        if (out != null) {
+            Arrays.fill(out, 0);
+        }
+        int t = decodeHuffman(c.dc);
+        int diff = t == 0 ? 0 : extend(receive(t), t);
+        c.pred += diff;
+        if (out != null) {
+            out[0] = c.pred * c.quantTable[0];
+        }
+        for (int k = 1; k < 64; k++) {
+            int rs = decodeHuffman(c.ac);
+            int r = rs >> 4;
+            int s = rs & 15;
+            if (s == 0) {
+                if (r != 15) {
+                    break;
+                }
+                k += 15;
+                continue;
+            }
+            k += r;
+            if (k > 63) {
+                throw new IOException("Corrupt JPEG data: AC index out of range");
+            }
+            int value = extend(receive(s), s);
+            if (out != null) {
+                int z = ZIGZAG[k];
+                out[z] = value * c.quantTable[z];
+            }
+        }
+    }
+
+    private void restart(Component[] scan) throws IOException {
+        bitBuf = 0;
+        bitCnt = 0;
+        markerHit = false;
+        skipToMarker();
+        if (pos + 1 < data.limit() && u8(pos) == 0xFF && u8(pos + 1) >= 0xD0 && u8(pos + 1) <= 0xD7) {
+            pos += 2;
+        }
+        for (Component c : scan) {
+            c.pred = 0;
+        }
+    }
+
+    // --- Bit reader (entropy-coded segment with 0xFF00 stuffing; zeros are fed once a marker is reached) ---
+
+    private void fill() {
+        int limit = data.limit();
+        while (bitCnt <= 24) {
+            int b = 0;
+            if (!markerHit && pos < limit) {
+                b = u8(pos);
+                if (b == 0xFF) {
+                    int next = pos + 1 < limit ? u8(pos + 1) : 0xD9;
+                    if (next == 0) {
+                        pos += 2;
+                    } else {
+                        markerHit = true;
+                        b = 0;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            bitBuf = (bitBuf << 8) | b;
+            bitCnt += 8;
+        }
+    }
+
+    private int receive(int s) {
+        if (bitCnt < s) {
+            fill();
+        }
+        bitCnt -= s;
+        return (bitBuf >>> bitCnt) & ((1 << s) - 1);
+    }
+
+    private int decodeHuffman(Huffman table) throws IOException {
+        if (bitCnt < 16) {
+            fill();
+        }
+        int entry = table.lookup[(bitBuf >>> (bitCnt - Huffman.LOOKUP_BITS)) & ((1 << Huffman.LOOKUP_BITS) - 1)];
+        if (entry != 0) {
+            bitCnt -= entry >> 8;
+            return entry & 0xFF;
+        }
+        for (int len = Huffman.LOOKUP_BITS + 1; len <= 16; len++) {
+            int code = (bitBuf >>> (bitCnt - len)) & ((1 << len) - 1);
+            if (code <= table.maxCode[len]) {
+                bitCnt -= len;
+                return table.values[table.valOffset[len] + code];
+            }
+        }
+        throw new IOException("Corrupt JPEG data: bad Huffman code");
+    }
+
+    private static int extend(int v, int s) {
+        return v < (1 << (s - 1)) ? v - (1 << s) + 1 : v;
+    }
+
+    // --- Marker scanning ---
+
+    private int nextMarker() {
+        int limit = data.limit();
+        while (pos + 1 < limit) {
+            if (u8(pos) == 0xFF) {
+                int m = u8(pos + 1);
+                if (m != 0xFF && m != 0x00) {
+                    pos += 2;
+                    return m;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private void skipToMarker() {
+        int limit = data.limit();
+        while (pos + 1 < limit) {
+            if (u8(pos) == 0xFF && u8(pos + 1) != 0x00 && u8(pos + 1) != 0xFF) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private int u8(int p) {
+        return data.get(p) & 0xFF;
+    }
+
+    private int u16(int p) {
+        return (u8(p) << 8) | u8(p + 1);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private static final class Component {
+        int id;
+        int h;
+        int v;
+        int quant;
+        int blocksWide;
+        int blocksHigh;
+        int pred;
+        Huffman dc;
+        Huffman ac;
+        int[] quantTable;
+    }
+
+    /**
+     * Canonical Huffman table with a direct lookup for codes up to LOOKUP_BITS long (JPEG spec Annex C / F.2.2.3).
+     */
+    private static final class Huffman {
+        static final int LOOKUP_BITS = 9;
+
+        final int[] lookup = new int[1 << LOOKUP_BITS];
+        final int[] maxCode = new int[17];
+        final int[] valOffset = new int[17];
+        final int[] values;
+
+        Huffman(int[] counts, int[] symbols) throws IOException {
+            this.values = symbols;
+            int code = 0;
+            int k = 0;
+            for (int len = 1; len <= 16; len++) {
+                valOffset[len] = k - code;
+                for (int i = 0; i < counts[len - 1]; i++) {
+                    // Over-subscribed lengths would run past the code space; the all-ones code is reserved
+                    if (code >= (1 << len) - 1) {
+                        throw new IOException("Malformed DHT segment");
+                    }
+                    if (len <= LOOKUP_BITS) {
+                        int shift = LOOKUP_BITS - len;
+                        int entry = (len << 8) | symbols[k];
+                        Arrays.fill(lookup, code << shift, (code + 1) << shift, entry);
+                    }
+                    code++;
+                    k++;
+                }
+                maxCode[len] = counts[len - 1] > 0 ? code - 1 : -1;
+                code <<= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.tvscs.imagevalidator.service.jpeg;
+
+import java.util.Arrays;
+
+/**
+ * Integer 8x8 inverse DCT with the same arithmetic as libjpeg's jpeg_idct_islow (jidctint.c, the default
+ * JDCT_ISLOW method used by OpenCV's bundled libjpeg-turbo), so reconstructed samples match its decode exactly.
+ */
+public final class JpegIdct {
+
+    private static final int CONST_BITS = 13;
+    private static final int PASS1_BITS = 2;
+
+    private static final int FIX_0_298631336 = 2446;
+    private static final int FIX_0_390180644 = 3196;
+    private static final int FIX_0_541196100 = 4433;
+    private static final int FIX_0_765366865 = 6270;
+    private static final int FIX_0_899976223 = 7373;
+    private static final int FIX_1_175875602 = 9633;
+    private static final int FIX_1_501321110 = 12299;
+    private static final int FIX_1_847759065 = 15137;
+    private static final int FIX_1_961570560 = 16069;
+    private static final int FIX_2_053119869 = 16819;
+    private static final int FIX_2_562915447 = 20995;
+    private static final int FIX_3_072711026 = 25172;
+
+    private JpegIdct() {
+    }
+
+    /**
+     * @param coefficients 64 dequantized coefficients in natural order (see {@link JpegCoefficientReader}).
+     * @param workspace Scratch array of at least 72 ints (reused across calls by the caller).
+     * @param out Destination samples (level-shifted by 128 and clamped to 0-255).
+     * @param offset Index of the block's top-left sample in out.
+     * @param stride Distance between rows in out.
+     */
+    public static void inverse(int[] coefficients, int[] workspace, byte[] out, int offset, int stride) {
+        int[] in = coefficients;
+        if (isDcOnly(in)) {
+            // Flat block (blank paper, background): both passes reduce to (DC + 4) >> 3
+            byte value = (byte) Math.max(0, Math.min(255, ((in[0] + 4) >> 3) + 128));
+            for (int r = 0; r < 8; r++) {
+                Arrays.fill(out, offset + r * stride, offset + r * stride + 8, value);
+            }
+            return;
+        }
+        // Pass 1: columns, results scaled up by 2^PASS1_BITS
+        for (int col = 0; col < 8; col++) {
+            if (in[col + 8] == 0 && in[col + 16] == 0 && in[col + 24] == 0 && in[col + 32] == 0
+                    && in[col + 40] == 0 && in[col + 48] == 0 && in[col + 56] == 0) {
+                int dc = in[col] << PASS1_BITS;
+                for (int row = 0; row < 8; row++) {
+                    workspace[row * 8 + col] = dc;
+                }
+                continue;
+            }
+            idct1d(in[col], in[col + 8], in[col + 16], in[col + 24], in[col + 32], in[col + 40], in[col + 48],
+                    in[col + 56], true, workspace, col, 8);
+        }
+        // Pass 2: rows, descaled to samples
+        for (int r = 0; r < 8; r++) {
+            int w = r * 8;
+            idct1d(workspace[w], workspace[w + 1], workspace[w + 2], workspace[w + 3], workspace[w + 4],
+                    workspace[w + 5], workspace[w + 6], workspace[w + 7], false, workspace, 64, 1);
+            int base = offset + r * stride;
+            for (int c = 0; c < 8; c++) {
+                out[base + c] = (byte) Math.max(0, Math.min(255, workspace[64 + c] + 128));
+            }
+        }
+    }
+
+    // One 8-point LL&M IDCT (even/odd parts as in jidctint.c); firstPass selects the descale of pass 1 or pass 2
+    private static void idct1d(int d0, int d1, int d2, int d3, int d4, int d5, int d6, int d7, boolean firstPass,
+                               int[] out, int offset, int step) {
+        // Even part
+        int z1 = (d2 + d6) * FIX_0_541196100;
+        int tmp2 = z1 - d6 * FIX_1_847759065;
+        int tmp3 = z1 + d2 * FIX_0_765366865;
+        int tmp0 = (d0 + d4) << CONST_BITS;
+        int tmp1 = (d0 - d4) << CONST_BITS;
+        int tmp10 = tmp0 + tmp3;
+        int tmp13 = tmp0 - tmp3;
+        int tmp11 = tmp1 + tmp2;
+        int tmp12 = tmp1 - tmp2;
+
+        // Odd part
+        tmp0 = d7;
+        tmp1 = d5;
+        tmp2 = d3;
+        tmp3 = d1;
+        z1 = tmp0 + tmp3;
+        int z2 = tmp1 + tmp2;
+        int z3 = tmp0 + tmp2;
+        int z4 = tmp1 + tmp3;
+        int z5 = (z3 + z4) * FIX_1_175875602;
+        tmp0 *= FIX_0_298631336;
+        tmp1 *= FIX_2_053119869;
+        tmp2 *= FIX_3_072711026;
+        tmp3 *= FIX_1_501321110;
+        z1 *= -FIX_0_899976223;
+        z2 *= -FIX_2_562915447;
+        z3 *= -FIX_1_961570560;
+        z4 *= -FIX_0_390180644;
+        z3 += z5;
+        z4 += z5;
+        tmp0 += z1 + z3;
+        tmp1 += z2 + z4;
+        tmp2 += z2 + z3;
+        tmp3 += z1 + z4;
+
+        int shift = firstPass ? CONST_BITS - PASS1_BITS : CONST_BITS + PASS1_BITS + 3;
+        out[offset] = descale(tmp10 + tmp3, shift);
+        out[offset + 7 * step] = descale(tmp10 - tmp3, shift);
+        out[offset + step] = descale(tmp11 + tmp2, shift);
+        out[offset + 6 * step] = descale(tmp11 - tmp2, shift);
+        out[offset + 2 * step] = descale(tmp12 + tmp1, shift);
+        out[offset + 5 * step] = descale(tmp12 - tmp1, shift);
+        out[offset + 3 * step] = descale(tmp13 + tmp0, shift);
+        out[offset + 4 * step] = descale(tmp13 - tmp0, shift);
+    }
+
+    private static boolean isDcOnly(int[] in) {
+        for (int i = 1; i < 64; i++) {
+            if (in[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int descale(int x, int n) {
+        return (x + (1 << (n - 1))) >> n;
+    }
+}
@@ -0,0 +1,16 @@
+package com.tvscs.imagevalidator.service.probe;
+
+/**
+ * Pixel dimensions of an image as declared in its header.
+ * @param width Width in pixels.
+ * @param height Height in pixels.
+ */
+public record ImageDimensions(int width, int height) {
+
+    /**
+     * @return Total pixel count (width * height).
+     */
+    public long pixelCount() {
+        return (long) width * height;
+    }
+}
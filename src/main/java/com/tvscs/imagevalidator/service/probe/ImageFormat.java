@@ -0,0 +1,105 @@
+package com.tvscs.imagevalidator.service.probe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Image container format detected from magic bytes (the client-supplied Content-Type is not trusted).
+ */
+public enum ImageFormat {
+    JPEG(true),
+    PNG(true),
+    WEBP(true),
+    BMP(true),
+    TIFF(true),
+    /** Recognized but not decodable by the bundled OpenCV build. */
+    GIF(false),
+    /** HEIC/HEIF/AVIF (ISO-BMFF 'ftyp' box); recognized but not decodable. */
+    HEIF(false),
+    UNKNOWN(false);
+
+    /** Number of leading bytes needed to tell every format apart. */
+    public static final int SNIFF_LENGTH = 12;
+
+    private final boolean supported;
+
+    ImageFormat(boolean supported) {
+        this.supported = supported;
+    }
+
+    /**
+     * @return True if the validation pipeline can decode this format.
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * @return Lower-case name for responses and metric tags.
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the first {@link #SNIFF_LENGTH} bytes of a stream and detects the format.
+     * @param in Stream positioned at the start of the upload (consumed; caller closes it).
+     * @return Detected format.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static ImageFormat sniff(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(SNIFF_LENGTH);
+        return detect(ByteBuffer.wrap(header));
+    }
+
+    /**
+     * @param data Leading bytes of the upload, [0, limit) (absolute reads).
+     * @return Detected format, or UNKNOWN.
+     */
+    public static ImageFormat detect(ByteBuffer data) {
+        int n = data.limit();
+        if (n >= 3 && u8(data, 0) == 0xFF && u8(data, 1) == 0xD8 && u8(data, 2) == 0xFF) {
+            return JPEG;
+        }
+        if (n >= 8 && u8(data, 0) == 0x89 && ascii(data, 1, "PNG\r\n") && u8(data, 6) == 0x1A && u8(data, 7) == '\n') {
+            return PNG;
+        }
+        if (n >= 12 && ascii(data, 0, "RIFF") && ascii(data, 8, "WEBP")) {
+            return WEBP;
+        }
+        if (n >= 6 && (ascii(data, 0, "GIF87a") || ascii(data, 0, "GIF89a"))) {
+            return GIF;
+        }
+        if (n >= 2 && ascii(data, 0, "BM")) {
+            return BMP;
+        }
+        if (n >= 4 && (ascii(data, 0, "II") && u8(data, 2) == 42 && u8(data, 3) == 0
+                || ascii(data, 0, "MM") && u8(data, 2) == 0 && u8(data, 3) == 42)) {
+            return TIFF;
+        }
+        if (n >= 12 && ascii(data, 4, "ftyp")
+                && (ascii(data, 8, "heic") || ascii(data, 8, "heix") || ascii(data, 8, "mif1")
+                || ascii(data, 8, "msf1") || ascii(data, 8, "avif"))) {
+            return HEIF;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean ascii(ByteBuffer data, int p, String s) {
+        if (p + s.length() > data.limit()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (u8(data, p + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(ByteBuffer data, int p) {
+        return data.get(p) & 0xFF;
+    }
+}
@@ -0,0 +1,213 @@
+package com.tvscs.imagevalidator.service.probe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free width/height parsers for JPEG (SOFn), PNG (IHDR), GIF (logical screen descriptor),
+ * BMP (DIB header) and WebP (VP8, VP8L, VP8X). Results are packed into a long to avoid allocating;
+ * anything not recognized is left to the ImageIO reader in {@link ImageHeaderProbe}.
+ */
+public final class ImageHeaderParser {
+
+    /** Format not recognized, or header not parseable by these parsers. */
+    public static final long UNKNOWN = -1L;
+
+    /** Recognized format, but the dimensions lie beyond the bytes available so far. */
+    public static final long NEED_MORE_DATA = -2L;
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * @param data Leading bytes of the encoded image, [0, limit) (absolute reads; position/limit are not changed).
+     * @return (width << 32 | height), {@link #UNKNOWN} or {@link #NEED_MORE_DATA}.
+     */
+    public static long parse(ByteBuffer data) {
+        int n = data.limit();
+        if (n < 2) {
+            return NEED_MORE_DATA;
+        }
+        int b0 = u8(data, 0);
+        int b1 = u8(data, 1);
+        if (b0 == 0xFF && b1 == 0xD8) {
+            return parseJpeg(data, n);
+        }
+        if (b0 == 0x89 && b1 == 'P') {
+            return parsePng(data, n);
+        }
+        if (b0 == 'G' && b1 == 'I') {
+            return parseGif(data, n);
+        }
+        if (b0 == 'B' && b1 == 'M') {
+            return parseBmp(data, n);
+        }
+        if (b0 == 'R' && b1 == 'I') {
+            return parseWebp(data, n);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param packed Result of {@link #parse(ByteBuffer)} (must be >= 0).
+     * @return Width in pixels.
+     */
+    public static int width(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * @param packed Result of {@link #parse(ByteBuffer)} (must be >= 0).
+     * @return Height in pixels.
+     */
+    public static int height(long packed) {
+        return (int) packed;
+    }
+
+    private static long parseJpeg(ByteBuffer data, int n) {
+        int pos = 2;
+        while (true) {
+            if (pos + 4 > n) {
+                return NEED_MORE_DATA;
+            }
+            if (u8(data, pos) != 0xFF) {
+                return UNKNOWN;
+            }
+            int marker = u8(data, pos + 1);
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                pos += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // No frame header before the image data
+                return UNKNOWN;
+            }
+            int length = u16be(data, pos + 2);
+            if (length < 2) {
+                return UNKNOWN;
+            }
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                if (pos + 9 > n) {
+                    return NEED_MORE_DATA;
+                }
+                int height = u16be(data, pos + 5);
+                int width = u16be(data, pos + 7);
+                // Height 0 means it is defined later by a DNL marker
+                return height == 0 ? UNKNOWN : pack(width, height);
+            }
+            pos += 2 + length;
+        }
+    }
+
+    private static long parsePng(ByteBuffer data, int n) {
+        if (n < 24) {
+            return NEED_MORE_DATA;
+        }
+        if (u8(data, 2) != 'N' || u8(data, 3) != 'G' || u8(data, 12) != 'I' || u8(data, 13) != 'H'
+                || u8(data, 14) != 'D' || u8(data, 15) != 'R') {
+            return UNKNOWN;
+        }
+        long width = u32be(data, 16);
+        long height = u32be(data, 20);
+        return width > Integer.MAX_VALUE || height > Integer.MAX_VALUE ? UNKNOWN : pack((int) width, (int) height);
+    }
+
+    private static long parseGif(ByteBuffer data, int n) {
+        if (n < 10) {
+            return NEED_MORE_DATA;
+        }
+        if (u8(data, 2) != 'F' || u8(data, 3) != '8' || u8(data, 5) != 'a') {
+            return UNKNOWN;
+        }
+        return pack(u16le(data, 6), u16le(data, 8));
+    }
+
+    private static long parseBmp(ByteBuffer data, int n) {
+        if (n < 26) {
+            return NEED_MORE_DATA;
+        }
+        long headerSize = u32le(data, 14);
+        if (headerSize == 12) {
+            return pack(u16le(data, 18), u16le(data, 20));
+        }
+        if (headerSize < 40) {
+            return UNKNOWN;
+        }
+        int width = (int) u32le(data, 18);
+        int height = (int) u32le(data, 22);
+        // Negative height marks a top-down bitmap
+        return width <= 0 || height == Integer.MIN_VALUE ? UNKNOWN : pack(width, Math.abs(height));
+    }
+
+    private static long parseWebp(ByteBuffer data, int n) {
+        if (n < 16) {
+            return NEED_MORE_DATA;
+        }
+        if (u8(data, 2) != 'F' || u8(data, 3) != 'F' || u8(data, 8) != 'W' || u8(data, 9) != 'E'
+                || u8(data, 10) != 'B' || u8(data, 11) != 'P' || u8(data, 12) != 'V' || u8(data, 13) != 'P'
+                || u8(data, 14) != '8') {
+            return UNKNOWN;
+        }
+        int chunk = u8(data, 15);
+        if (chunk == ' ') {
+            // Lossy: frame tag (3 bytes), start code 9D 01 2A, then 14-bit width/height
+            if (n < 30) {
+                return NEED_MORE_DATA;
+            }
+            if (u8(data, 23) != 0x9D || u8(data, 24) != 0x01 || u8(data, 25) != 0x2A) {
+                return UNKNOWN;
+            }
+            return pack(u16le(data, 26) & 0x3FFF, u16le(data, 28) & 0x3FFF);
+        }
+        if (chunk == 'L') {
+            // Lossless: signature 0x2F, then 14-bit (width - 1) and (height - 1)
+            if (n < 25) {
+                return NEED_MORE_DATA;
+            }
+            if (u8(data, 20) != 0x2F) {
+                return UNKNOWN;
+            }
+            long bits = u32le(data, 21);
+            return pack((int) (bits & 0x3FFF) + 1, (int) ((bits >>> 14) & 0x3FFF) + 1);
+        }
+        if (chunk == 'X') {
+            // Extended: flags (4 bytes), then 24-bit (canvas width - 1) and (canvas height - 1)
+            if (n < 30) {
+                return NEED_MORE_DATA;
+            }
+            return pack(u24le(data, 24) + 1, u24le(data, 27) + 1);
+        }
+        return UNKNOWN;
+    }
+
+    private static long pack(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    private static int u8(ByteBuffer data, int p) {
+        return data.get(p) & 0xFF;
+    }
+
+    private static int u16be(ByteBuffer data, int p) {
+        return (u8(data, p) << 8) | u8(data, p + 1);
+    }
+
+    private static int u16le(ByteBuffer data, int p) {
+        return u8(data, p) | (u8(data, p + 1) << 8);
+    }
+
+    private static int u24le(ByteBuffer data, int p) {
+        return u8(data, p) | (u8(data, p + 1) << 8) | (u8(data, p + 2) << 16);
+    }
+
+    private static long u32be(ByteBuffer data, int p) {
+        return ((long) u16be(data, p) << 16) | u16be(data, p + 2);
+    }
+
+    private static long u32le(ByteBuffer data, int p) {
+        return u16le(data, p) | ((long) u16le(data, p + 2) << 16);
+    }
+}
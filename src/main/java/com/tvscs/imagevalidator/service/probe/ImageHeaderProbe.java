@@ -0,0 +1,65 @@
+package com.tvscs.imagevalidator.service.probe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tvscs.imagevalidator.service.io.ByteBufferInputStream;
+
+/**
+ * Reads pixel dimensions from the image header without decoding any pixel data.
+ * Lets the resolution, effective DPI and aspect ratio checks run before a BufferedImage/Mat is allocated.
+ * Common formats are handled by {@link ImageHeaderParser}; ImageIO readers are the fallback for the rest.
+ */
+public final class ImageHeaderProbe {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageHeaderProbe.class);
+
+    private ImageHeaderProbe() {
+    }
+
+    /**
+     * Probes the header of an encoded image.
+     * @param data Encoded image bytes (read from a duplicate; position/limit are not changed).
+     * @return Dimensions of the first image, or null if neither the built-in parsers nor an ImageIO reader can read it.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static ImageDimensions probe(ByteBuffer data) throws IOException {
+        long packed = ImageHeaderParser.parse(data);
+        if (packed >= 0) {
+            return new ImageDimensions(ImageHeaderParser.width(packed), ImageHeaderParser.height(packed));
+        }
+        return probeWithImageIO(data);
+    }
+
+    private static ImageDimensions probeWithImageIO(ByteBuffer data) throws IOException {
+        // Memory cache stream: ImageIO.createImageInputStream would spill to a temp file when ImageIO.getUseCache() is on
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(new ByteBufferInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                // seekForwardOnly + ignoreMetadata: the reader only parses up to the frame header
+                reader.setInput(iis, true, true);
+                return new ImageDimensions(reader.getWidth(0), reader.getHeight(0));
+            } catch (IOException | RuntimeException e) {
+                // Reader plugins (BMP, TIFF, ...) also report malformed headers as NegativeArraySizeException,
+                // IndexOutOfBoundsException and the like; the bytes are in memory, so either way the header is unreadable
+                log.debug("Header probe failed: {}", e.toString());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
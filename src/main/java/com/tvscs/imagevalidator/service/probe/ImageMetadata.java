@@ -0,0 +1,28 @@
+package com.tvscs.imagevalidator.service.probe;
+
+/**
+ * Capture metadata read from JFIF/EXIF headers.
+ * @param xDpi Declared horizontal density in DPI (0 if absent).
+ * @param yDpi Declared vertical density in DPI (0 if absent).
+ * @param orientation EXIF orientation (1-8; 1 if absent).
+ * @param thumbnailOffset Absolute offset of the embedded EXIF JPEG thumbnail in the upload (-1 if absent).
+ * @param thumbnailLength Length of the embedded thumbnail in bytes (0 if absent).
+ */
+public record ImageMetadata(double xDpi, double yDpi, int orientation, int thumbnailOffset, int thumbnailLength) {
+
+    public static final ImageMetadata NONE = new ImageMetadata(0, 0, 1, -1, 0);
+
+    /**
+     * @return True if the stored pixels are displayed rotated by 90/270 degrees (orientations 5-8).
+     */
+    public boolean swapsDimensions() {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    /**
+     * @return True if an embedded JPEG thumbnail is present.
+     */
+    public boolean hasThumbnail() {
+        return thumbnailOffset >= 0 && thumbnailLength > 0;
+    }
+}
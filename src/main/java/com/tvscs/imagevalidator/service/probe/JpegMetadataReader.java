@@ -0,0 +1,203 @@
+package com.tvscs.imagevalidator.service.probe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads JFIF density and EXIF resolution, orientation and thumbnail location from the APPn segments of a JPEG.
+ * Only the segments before the frame header are visited (typically the first few KB), and nothing is decoded.
+ */
+public final class JpegMetadataReader {
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_X_RESOLUTION = 0x011A;
+    private static final int TAG_Y_RESOLUTION = 0x011B;
+    private static final int TAG_RESOLUTION_UNIT = 0x0128;
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+
+    private JpegMetadataReader() {
+    }
+
+    /**
+     * @param data Encoded image bytes (absolute reads; position/limit are not changed).
+     * @return Metadata, or {@link ImageMetadata#NONE} if the data is not a JPEG or carries no JFIF/EXIF segment.
+     */
+    public static ImageMetadata read(ByteBuffer data) {
+        int limit = data.limit();
+        if (limit < 4 || u8(data, 0) != 0xFF || u8(data, 1) != 0xD8) {
+            return ImageMetadata.NONE;
+        }
+        double xDpi = 0;
+        double yDpi = 0;
+        int orientation = 1;
+        int thumbnailOffset = -1;
+        int thumbnailLength = 0;
+        int pos = 2;
+        while (pos + 4 <= limit) {
+            if (u8(data, pos) != 0xFF) {
+                break;
+            }
+            int marker = u8(data, pos + 1);
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xDA || (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC)) {
+                // Frame/scan reached: metadata segments come before these
+                break;
+            }
+            int length = u16(data, pos + 2, ByteOrder.BIG_ENDIAN);
+            int start = pos + 4;
+            int end = pos + 2 + length;
+            if (length < 2 || end > limit) {
+                break;
+            }
+            if (marker == 0xE0 && length >= 16 && matches(data, start, "JFIF\0")) {
+                int units = u8(data, start + 7);
+                int xDensity = u16(data, start + 8, ByteOrder.BIG_ENDIAN);
+                int yDensity = u16(data, start + 10, ByteOrder.BIG_ENDIAN);
+                // EXIF resolution, when present, takes precedence over JFIF density
+                if (units != 0 && xDpi == 0) {
+                    xDpi = toDpi(xDensity, units == 2 ? 3 : 2);
+                    yDpi = toDpi(yDensity, units == 2 ? 3 : 2);
+                }
+            } else if (marker == 0xE1 && length >= 16 && matches(data, start, "Exif\0\0")) {
+                Exif exif = readExif(data, start + 6, end);
+                if (exif != null) {
+                    orientation = exif.orientation;
+                    if (exif.xResolution > 0) {
+                        xDpi = toDpi(exif.xResolution, exif.resolutionUnit);
+                        yDpi = toDpi(exif.yResolution > 0 ? exif.yResolution : exif.xResolution, exif.resolutionUnit);
+                    }
+                    if (exif.thumbnailOffset > 0 && exif.thumbnailLength > 0
+                            && start + 6 + (long) exif.thumbnailOffset + exif.thumbnailLength <= end) {
+                        thumbnailOffset = (int) (start + 6 + exif.thumbnailOffset);
+                        thumbnailLength = (int) exif.thumbnailLength;
+                    }
+                }
+            }
+            pos = end;
+        }
+        if (xDpi == 0 && orientation == 1 && thumbnailOffset < 0) {
+            return ImageMetadata.NONE;
+        }
+        return new ImageMetadata(xDpi, yDpi, orientation, thumbnailOffset, thumbnailLength);
+    }
+
+    private static Exif readExif(ByteBuffer data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return null;
+        }
+        ByteOrder order;
+        if (u8(data, tiff) == 'I' && u8(data, tiff + 1) == 'I') {
+            order = ByteOrder.LITTLE_ENDIAN;
+        } else if (u8(data, tiff) == 'M' && u8(data, tiff + 1) == 'M') {
+            order = ByteOrder.BIG_ENDIAN;
+        } else {
+            return null;
+        }
+        if (u16(data, tiff + 2, order) != 42) {
+            return null;
+        }
+        Exif exif = new Exif();
+        long ifd0 = u32(data, tiff + 4, order);
+        long ifd1 = readIfd(data, tiff, end, ifd0, order, exif, false);
+        if (ifd1 > 0) {
+            // IFD1 describes the thumbnail: its resolution and orientation must not replace the main image's
+            readIfd(data, tiff, end, ifd1, order, exif, true);
+        }
+        return exif;
+    }
+
+    /**
+     * Reads the tags of interest from one IFD.
+     * @param thumbnail True for IFD1, where only the thumbnail location is read.
+     * @return Offset of the next IFD, or 0.
+     */
+    private static long readIfd(ByteBuffer data, int tiff, int end, long offset, ByteOrder order, Exif exif,
+                                boolean thumbnail) {
+        if (offset < 8 || tiff + offset + 2 > end) {
+            return 0;
+        }
+        int ifd = (int) (tiff + offset);
+        int count = u16(data, ifd, order);
+        if (ifd + 2 + count * 12L + 4 > end) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + i * 12;
+            int tag = u16(data, entry, order);
+            int type = u16(data, entry + 2, order);
+            int value = entry + 8;
+            if (thumbnail != (tag == TAG_THUMBNAIL_OFFSET || tag == TAG_THUMBNAIL_LENGTH)) {
+                continue;
+            }
+            switch (tag) {
+                case TAG_ORIENTATION -> {
+                    int o = u16(data, value, order);
+                    exif.orientation = o >= 1 && o <= 8 ? o : 1;
+                }
+                case TAG_RESOLUTION_UNIT -> exif.resolutionUnit = u16(data, value, order);
+                case TAG_X_RESOLUTION -> exif.xResolution = rational(data, tiff, end, value, order);
+                case TAG_Y_RESOLUTION -> exif.yResolution = rational(data, tiff, end, value, order);
+                case TAG_THUMBNAIL_OFFSET -> exif.thumbnailOffset = type == 3 ? u16(data, value, order) : u32(data, value, order);
+                case TAG_THUMBNAIL_LENGTH -> exif.thumbnailLength = type == 3 ? u16(data, value, order) : u32(data, value, order);
+                default -> {
+                }
+            }
+        }
+        return u32(data, ifd + 2 + count * 12, order);
+    }
+
+    private static double rational(ByteBuffer data, int tiff, int end, int valueField, ByteOrder order) {
+        long offset = u32(data, valueField, order);
+        if (tiff + offset + 8 > end) {
+            return 0;
+        }
+        long numerator = u32(data, (int) (tiff + offset), order);
+        long denominator = u32(data, (int) (tiff + offset + 4), order);
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    /**
+     * @param unit EXIF ResolutionUnit (2 = inch, 3 = centimetre).
+     */
+    private static double toDpi(double density, int unit) {
+        return unit == 3 ? density * 2.54 : density;
+    }
+
+    private static boolean matches(ByteBuffer data, int p, String signature) {
+        for (int i = 0; i < signature.length(); i++) {
+            if (u8(data, p + i) != signature.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(ByteBuffer data, int p) {
+        return data.get(p) & 0xFF;
+    }
+
+    private static int u16(ByteBuffer data, int p, ByteOrder order) {
+        int a = u8(data, p);
+        int b = u8(data, p + 1);
+        return order == ByteOrder.BIG_ENDIAN ? (a << 8) | b : (b << 8) | a;
+    }
+
+    private static long u32(ByteBuffer data, int p, ByteOrder order) {
+        long hi = u16(data, order == ByteOrder.BIG_ENDIAN ? p : p + 2, order);
+        long lo = u16(data, order == ByteOrder.BIG_ENDIAN ? p + 2 : p, order);
+        return (hi << 16) | lo;
+    }
+
+    private static final class Exif {
+        int orientation = 1;
+        int resolutionUnit = 2;
+        double xResolution;
+        double yResolution;
+        long thumbnailOffset;
+        long thumbnailLength;
+    }
+}
@@ -0,0 +1,178 @@
+package com.tvscs.imagevalidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.tvscs.imagevalidator.service.compute.ComputePolicy;
+import com.tvscs.imagevalidator.service.compute.ComputeScheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ComputeSchedulerTest {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final long LARGE = 8_000_000;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        // Slots set OpenCV's thread count
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testAutoGivesALoneLargeImageEveryCore() {
+        ComputeScheduler scheduler = new ComputeScheduler("auto", 4, LARGE, new SimpleMeterRegistry());
+        try (ComputeScheduler.Slot slot = scheduler.acquire(LARGE)) {
+            assertEquals(CORES, slot.threads());
+            assertEquals(CORES > 1, slot.tilePool() != null);
+        }
+        try (ComputeScheduler.Slot slot = scheduler.acquire(LARGE - 1)) {
+            assertEquals(1, slot.threads());
+            assertNull(slot.tilePool());
+        }
+    }
+
+    @Test
+    void testAutoDropsToOneThreadUnderLoad() {
+        ComputeScheduler scheduler = new ComputeScheduler("auto", 4, LARGE, new SimpleMeterRegistry());
+        try (ComputeScheduler.Slot first = scheduler.acquire(1000)) {
+            try (ComputeScheduler.Slot second = scheduler.acquire(LARGE)) {
+                assertEquals(1, second.threads());
+            }
+        }
+        // Both released: the next lone large image gets every core again
+        try (ComputeScheduler.Slot slot = scheduler.acquire(LARGE)) {
+            assertEquals(CORES, slot.threads());
+        }
+    }
+
+    @Test
+    void testFixedPolicies() {
+        try (ComputeScheduler.Slot slot = new ComputeScheduler("throughput", 4, LARGE, new SimpleMeterRegistry())
+                .acquire(LARGE)) {
+            assertEquals(1, slot.threads());
+        }
+        try (ComputeScheduler.Slot slot = new ComputeScheduler("latency", 2, LARGE, new SimpleMeterRegistry())
+                .acquire(1000)) {
+            assertEquals(Math.max(1, CORES / 2), slot.threads());
+        }
+    }
+
+    @Test
+    void testConcurrentSlotsStayWithinTheirShare() throws Exception {
+        ComputeScheduler scheduler = new ComputeScheduler("latency", 2, LARGE, new SimpleMeterRegistry());
+        int share = Math.max(1, CORES / 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try (ComputeScheduler.Slot first = scheduler.acquire(LARGE);
+             ComputeScheduler.Slot second = scheduler.acquire(LARGE)) {
+            assertEquals(share, first.threads());
+            assertEquals(share, second.threads());
+            if (share > 1) {
+                assertNotSame(first.tilePool(), second.tilePool());
+            }
+            // One slot's tile pass while the other holds its share (e.g., decoding): the idle share is not borrowed
+            int alone = tilePassPeak(first.tilePool(), 8 * CORES, running, peak);
+            assertTrue(alone <= share, "lone tile pass ran " + alone + " tasks at once, share " + share);
+
+            // Both at once
+            CompletableFuture<Integer> other = CompletableFuture.supplyAsync(
+                    () -> tilePassPeak(second.tilePool(), 8 * CORES, running, peak), r -> new Thread(r).start());
+            int both = tilePassPeak(first.tilePool(), 8 * CORES, running, peak);
+            int otherPeak = other.get(30, TimeUnit.SECONDS);
+            assertTrue(both <= share && otherPeak <= share, "slots ran " + both + " and " + otherPeak + " tasks at once");
+            assertTrue(peak.get() <= 2 * share, "slots ran " + peak.get() + " tasks at once, share " + share);
+            for (ComputeScheduler.Slot slot : new ComputeScheduler.Slot[]{first, second}) {
+                if (slot.tilePool() != null) {
+                    assertTrue(slot.tilePool().getPoolSize() <= share, "pool started " + slot.tilePool().getPoolSize());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testClosedSlotIsReleasedOnce() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ComputeScheduler scheduler = new ComputeScheduler("throughput", 1, LARGE, registry);
+        ComputeScheduler.Slot slot = scheduler.acquire(1000);
+        assertEquals(1, registry.get("image.compute.active").gauge().value());
+        CompletableFuture<ComputeScheduler.Slot> waiting = CompletableFuture.supplyAsync(() -> scheduler.acquire(1000));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("image.compute.queued").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.get("image.compute.queued").gauge().value());
+        assertFalse(waiting.isDone());
+
+        slot.close();
+        slot.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, registry.get("image.compute.active").gauge().value());
+        // A double close must not have added a second permit: one slot in, the next one waits
+        ComputeScheduler.Slot again = scheduler.acquire(1000);
+        CompletableFuture<ComputeScheduler.Slot> blocked = CompletableFuture.supplyAsync(() -> scheduler.acquire(1000));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        again.close();
+        blocked.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void testPolicyFromProperty() {
+        assertEquals(ComputePolicy.LATENCY, ComputePolicy.fromProperty(" Latency "));
+        assertEquals("auto", ComputePolicy.AUTO.id());
+        assertThrows(IllegalArgumentException.class, () -> ComputePolicy.fromProperty("fastest"));
+    }
+
+    /**
+     * Runs tasks the way the tile pass does (one invokeAll on the slot's pool, or inline without a pool) and
+     * returns how many ran at once.
+     */
+    private static int tilePassPeak(ForkJoinPool pool, int tasks, AtomicInteger running, AtomicInteger peak) {
+        AtomicInteger slotRunning = new AtomicInteger();
+        AtomicInteger slotPeak = new AtomicInteger();
+        List<RecursiveAction> bands = new ArrayList<>();
+        for (int t = 0; t < tasks; t++) {
+            bands.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    slotPeak.accumulateAndGet(slotRunning.incrementAndGet(), Math::max);
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    slotRunning.decrementAndGet();
+                }
+            });
+        }
+        if (pool == null) {
+            bands.forEach(RecursiveAction::invoke);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(bands);
+                }
+            });
+        }
+        return slotPeak.get();
+    }
+}
@@ -0,0 +1,179 @@
+package com.tvscs.imagevalidator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.DctSharpnessEstimator;
+
+class DctSharpnessEstimatorTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testEstimateTracksLaplacianVariance() throws IOException {
+        for (double sigma : new double[]{0.8, 1.0, 1.5}) {
+            byte[] jpeg = encode(document(sigma), Imgcodecs.IMWRITE_JPEG_QUALITY, 90);
+            double expected = laplacianVariance(jpeg);
+            double estimate = DctSharpnessEstimator.estimate(direct(jpeg), 1.1);
+            assertEquals(expected, estimate, expected * 0.25, "sigma=" + sigma);
+        }
+    }
+
+    @Test
+    void testProgressiveJpegIsUnsupported() throws IOException {
+        byte[] jpeg = encode(document(0), Imgcodecs.IMWRITE_JPEG_PROGRESSIVE, 1);
+        assertTrue(Double.isNaN(DctSharpnessEstimator.estimate(direct(jpeg), 1.1)));
+    }
+
+    @Test
+    void testNonJpegIsUnsupported() throws IOException {
+        byte[] png = encode(document(0), ".png");
+        assertTrue(Double.isNaN(DctSharpnessEstimator.estimate(direct(png), 1.1)));
+    }
+
+    @Test
+    void testGarbageTablesAreReportedAsCorrupt() throws IOException {
+        int[] sof = {8, 0, 8, 0, 8, 1, 1, 0x11, 0};
+        int[] dcTable = huffmanTable(0x00, 0);
+        int[] acTable = huffmanTable(0x10, 0);
+        int[] sos = {1, 1, 0x00, 0, 63, 0};
+        assertTrue(Double.isFinite(DctSharpnessEstimator.estimate(direct(jpeg(sof, dcTable, acTable, sos)), 1.1)));
+
+        // Three 1-bit codes: over-subscribed code lengths
+        int[] oversubscribed = huffmanTable(0x00, 0, 1, 2);
+        oversubscribed[1] = 3;
+        // DC magnitude category past 16 bits
+        int[] hugeCategory = huffmanTable(0x00, 0x20);
+        int[][][] corrupt = {
+                {sof, oversubscribed, acTable, sos},
+                {sof, hugeCategory, acTable, sos},
+                {sof, Arrays.copyOf(dcTable, 9), acTable, sos},
+                {sof, huffmanTable(0x20, 0), dcTable, acTable, sos},
+                {sof, dcTable, acTable, {1, 1, 0x40, 0, 63, 0}},
+                {sof, dcTable, acTable, {4, 1, 0x00, 0, 63, 0}},
+                {{8, 0, 8, 0, 8, 3, 1, 0x11, 0}, dcTable, acTable, sos},
+                {{8, 0, 8, 0, 8, 1, 1, 0x00, 0}, dcTable, acTable, sos},
+        };
+        for (int[][] segments : corrupt) {
+            assertThrows(IOException.class, () -> DctSharpnessEstimator.estimate(direct(jpeg(segments)), 1.1));
+        }
+    }
+
+    @Test
+    void testTruncatedJpegIsReportedAsCorrupt() {
+        byte[] jpeg = encode(document(0), Imgcodecs.IMWRITE_JPEG_QUALITY, 90);
+        int scanStart = 2;
+        while (jpeg[scanStart] != (byte) 0xFF || jpeg[scanStart + 1] != (byte) 0xDA) {
+            scanStart++;
+        }
+        for (int length = 4; length < scanStart + 4; length++) {
+            // Headers cut anywhere: never an unchecked exception
+            ByteBuffer prefix = direct(Arrays.copyOf(jpeg, length));
+            assertThrows(IOException.class, () -> DctSharpnessEstimator.estimate(prefix, 1.1), "length=" + length);
+        }
+    }
+
+    private static Mat document(double sigma) {
+        // Odd size so partial edge blocks and 4:2:0 MCU padding are exercised
+        Mat image = new Mat(601, 803, CvType.CV_8UC3, new Scalar(235, 235, 235));
+        for (int i = 0; i < 22; i++) {
+            Imgproc.putText(image, "Passport 1234567890 ABCDEFGH", new Point(20, 30 + i * 26), Imgproc.FONT_HERSHEY_SIMPLEX,
+                    0.8, new Scalar(30, 30, 110), 2);
+        }
+        if (sigma > 0) {
+            Imgproc.GaussianBlur(image, image, new Size(0, 0), sigma);
+        }
+        return image;
+    }
+
+    private static byte[] encode(Mat image, int flag, int value) {
+        MatOfByte out = new MatOfByte();
+        Imgcodecs.imencode(".jpg", image, out, new MatOfInt(flag, value));
+        return out.toArray();
+    }
+
+    private static byte[] encode(Mat image, String ext) {
+        MatOfByte out = new MatOfByte();
+        Imgcodecs.imencode(ext, image, out);
+        return out.toArray();
+    }
+
+    private static double laplacianVariance(byte[] encoded) {
+        Mat gray = Imgcodecs.imdecode(new MatOfByte(encoded), Imgcodecs.IMREAD_GRAYSCALE);
+        Mat laplacian = new Mat();
+        Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+        MatOfDouble mean = new MatOfDouble();
+        MatOfDouble std = new MatOfDouble();
+        Core.meanStdDev(laplacian, mean, std);
+        return std.get(0, 0)[0] * std.get(0, 0)[0];
+    }
+
+    /**
+     * Baseline 8x8 grayscale JPEG: a flat DQT, the given SOF0/DHT/SOS payloads, and one all-zero block of scan data.
+     */
+    private static byte[] jpeg(int[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        int[] dqt = new int[65];
+        Arrays.fill(dqt, 1, 65, 1);
+        segment(out, 0xDB, dqt);
+        segment(out, 0xC0, segments[0]);
+        for (int i = 1; i < segments.length - 1; i++) {
+            segment(out, 0xC4, segments[i]);
+        }
+        segment(out, 0xDA, segments[segments.length - 1]);
+        out.writeBytes(new byte[]{0x00, (byte) 0xFF, (byte) 0xD9});
+        return out.toByteArray();
+    }
+
+    private static void segment(ByteArrayOutputStream out, int marker, int[] payload) {
+        out.write(0xFF);
+        out.write(marker);
+        out.write((payload.length + 2) >> 8);
+        out.write(payload.length + 2);
+        for (int b : payload) {
+            out.write(b);
+        }
+    }
+
+    /**
+     * DHT payload assigning one code per length, starting at 1 bit.
+     */
+    private static int[] huffmanTable(int classAndId, int... symbols) {
+        int[] table = new int[17 + symbols.length];
+        table[0] = classAndId;
+        for (int i = 0; i < symbols.length; i++) {
+            table[1 + i] = 1;
+            table[17 + i] = symbols[i];
+        }
+        return table;
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+}
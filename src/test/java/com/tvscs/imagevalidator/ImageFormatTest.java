@@ -0,0 +1,97 @@
+package com.tvscs.imagevalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import com.tvscs.imagevalidator.service.probe.ImageFormat;
+
+class ImageFormatTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testSupportedFormatsFromEncoderOutput() throws IOException {
+        Mat image = new Mat(32, 48, CvType.CV_8UC3);
+        Core.randu(image, 0, 256);
+        String[] extensions = {".jpg", ".png", ".webp", ".bmp", ".tiff"};
+        ImageFormat[] formats = {ImageFormat.JPEG, ImageFormat.PNG, ImageFormat.WEBP, ImageFormat.BMP, ImageFormat.TIFF};
+        for (int i = 0; i < extensions.length; i++) {
+            MatOfByte encoded = new MatOfByte();
+            Imgcodecs.imencode(extensions[i], image, encoded);
+            byte[] bytes = encoded.toArray();
+            encoded.release();
+            assertEquals(formats[i], ImageFormat.detect(ByteBuffer.wrap(bytes)), extensions[i]);
+            assertEquals(formats[i], ImageFormat.sniff(new ByteArrayInputStream(bytes)), extensions[i]);
+            assertTrue(formats[i].isSupported());
+        }
+        image.release();
+    }
+
+    @Test
+    void testMagicBytes() {
+        assertEquals(ImageFormat.JPEG, detect((byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1));
+        assertEquals(ImageFormat.PNG, detect((byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'));
+        assertEquals(ImageFormat.WEBP, detect("RIFF\0\0\0\0WEBPVP8 "));
+        assertEquals(ImageFormat.BMP, detect("BM"));
+        assertEquals(ImageFormat.TIFF, detect('I', 'I', 42, 0));
+        assertEquals(ImageFormat.TIFF, detect('M', 'M', 0, 42));
+        assertEquals(ImageFormat.GIF, detect("GIF87a"));
+        assertEquals(ImageFormat.GIF, detect("GIF89a"));
+        assertEquals(ImageFormat.HEIF, detect("\0\0\0\u0018ftypheic"));
+        assertEquals(ImageFormat.HEIF, detect("\0\0\0\u001Cftypavif"));
+        assertFalse(ImageFormat.GIF.isSupported());
+        assertFalse(ImageFormat.HEIF.isSupported());
+    }
+
+    @Test
+    void testNonImagesAreUnknown() {
+        assertEquals(ImageFormat.UNKNOWN, detect(""));
+        assertEquals(ImageFormat.UNKNOWN, detect("dummy"));
+        assertEquals(ImageFormat.UNKNOWN, detect("<html><body>"));
+        assertEquals(ImageFormat.UNKNOWN, detect("%PDF-1.7\n"));
+        // Other RIFF and ISO-BMFF containers
+        assertEquals(ImageFormat.UNKNOWN, detect("RIFF\0\0\0\0WAVEfmt "));
+        assertEquals(ImageFormat.UNKNOWN, detect("\0\0\0\u0018ftypmp42"));
+        // Signatures cut short
+        assertEquals(ImageFormat.UNKNOWN, detect((byte) 0xFF, (byte) 0xD8));
+        assertEquals(ImageFormat.UNKNOWN, detect((byte) 0x89, 'P', 'N', 'G'));
+        assertEquals(ImageFormat.UNKNOWN, detect('I', 'I', 42));
+        assertFalse(ImageFormat.UNKNOWN.isSupported());
+    }
+
+    @Test
+    void testSniffReadsOnlyTheSignature() throws IOException {
+        byte[] bytes = "GIF89a and the rest of the upload".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        assertEquals(ImageFormat.GIF, ImageFormat.sniff(in));
+        assertEquals(bytes.length - ImageFormat.SNIFF_LENGTH, in.available());
+    }
+
+    private static ImageFormat detect(String signature) {
+        return ImageFormat.detect(ByteBuffer.wrap(signature.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private static ImageFormat detect(int... signature) {
+        byte[] bytes = new byte[signature.length];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) signature[i];
+        }
+        return ImageFormat.detect(ByteBuffer.wrap(bytes));
+    }
+}
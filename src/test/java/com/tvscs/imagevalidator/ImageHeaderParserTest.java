@@ -0,0 +1,84 @@
+package com.tvscs.imagevalidator;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import com.tvscs.imagevalidator.service.probe.ImageHeaderParser;
+
+class ImageHeaderParserTest {
+
+    @Test
+    void testImageIoWrittenFormats() throws IOException {
+        for (String format : new String[]{"jpeg", "png", "gif", "bmp"}) {
+            byte[] bytes = write(format, 641, 377);
+            long packed = ImageHeaderParser.parse(ByteBuffer.wrap(bytes));
+            assertEquals(641, ImageHeaderParser.width(packed), format);
+            assertEquals(377, ImageHeaderParser.height(packed), format);
+        }
+    }
+
+    @Test
+    void testWebpLossless() {
+        ByteBuffer webp = riff("VP8L", 25);
+        webp.put(20, (byte) 0x2F);
+        // (width - 1) in bits 0-13, (height - 1) in bits 14-27
+        webp.putInt(21, (1999 & 0x3FFF) | ((1499 & 0x3FFF) << 14));
+        long packed = ImageHeaderParser.parse(webp);
+        assertEquals(2000, ImageHeaderParser.width(packed));
+        assertEquals(1500, ImageHeaderParser.height(packed));
+    }
+
+    @Test
+    void testWebpExtended() {
+        ByteBuffer webp = riff("VP8X", 30);
+        webp.put(24, (byte) 0x9F).put(25, (byte) 0x0F).put(26, (byte) 0x00);
+        webp.put(27, (byte) 0xBB).put(28, (byte) 0x0B).put(29, (byte) 0x00);
+        long packed = ImageHeaderParser.parse(webp);
+        assertEquals(0x0F9F + 1, ImageHeaderParser.width(packed));
+        assertEquals(0x0BBB + 1, ImageHeaderParser.height(packed));
+    }
+
+    @Test
+    void testWebpLossy() {
+        ByteBuffer webp = riff("VP8 ", 30);
+        webp.put(23, (byte) 0x9D).put(24, (byte) 0x01).put(25, (byte) 0x2A);
+        webp.putShort(26, (short) 1024).putShort(28, (short) 768);
+        long packed = ImageHeaderParser.parse(webp);
+        assertEquals(1024, ImageHeaderParser.width(packed));
+        assertEquals(768, ImageHeaderParser.height(packed));
+    }
+
+    @Test
+    void testTruncatedHeaderNeedsMoreData() throws IOException {
+        byte[] png = write("png", 10, 10);
+        assertEquals(ImageHeaderParser.NEED_MORE_DATA, ImageHeaderParser.parse(ByteBuffer.wrap(png, 0, 20).slice()));
+        byte[] jpeg = write("jpeg", 10, 10);
+        assertEquals(ImageHeaderParser.NEED_MORE_DATA, ImageHeaderParser.parse(ByteBuffer.wrap(jpeg, 0, 30).slice()));
+    }
+
+    @Test
+    void testUnknownFormat() {
+        assertEquals(ImageHeaderParser.UNKNOWN, ImageHeaderParser.parse(ByteBuffer.wrap("hello world".getBytes())));
+    }
+
+    private static byte[] write(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer riff(String chunk, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(size - 8).put("WEBP".getBytes()).put(chunk.getBytes());
+        return buffer;
+    }
+}
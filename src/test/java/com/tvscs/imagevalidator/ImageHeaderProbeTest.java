@@ -0,0 +1,68 @@
+package com.tvscs.imagevalidator;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+import com.tvscs.imagevalidator.service.probe.ImageDimensions;
+import com.tvscs.imagevalidator.service.probe.ImageHeaderParser;
+import com.tvscs.imagevalidator.service.probe.ImageHeaderProbe;
+
+class ImageHeaderProbeTest {
+
+    @Test
+    void testImageIoFallbackReadsTiff() throws IOException {
+        byte[] tiff = write("tiff", 641, 377);
+        // Not covered by the built-in parsers
+        assertEquals(ImageHeaderParser.UNKNOWN, ImageHeaderParser.parse(ByteBuffer.wrap(tiff)));
+        assertEquals(new ImageDimensions(641, 377), ImageHeaderProbe.probe(ByteBuffer.wrap(tiff)));
+    }
+
+    @Test
+    void testTruncatedOrGarbageHeaderIsUnreadable() throws IOException {
+        byte[] tiff = write("tiff", 641, 377);
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(Arrays.copyOf(tiff, 12))));
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(new byte[]{'I', 'I', 42, 0, 8, 0, 0, 0, (byte) 0xFF, 1, 2})));
+        byte[] noise = new byte[4096];
+        new Random(4096).nextBytes(noise);
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(noise)));
+    }
+
+    @Test
+    void testReaderRuntimeExceptionsAreUnreadable() throws IOException {
+        // TIFF reader: IndexOutOfBoundsException on a negative IFD offset
+        byte[] tiff = write("tiff", 641, 377);
+        ByteBuffer.wrap(tiff).order(ByteOrder.BIG_ENDIAN).putInt(4, -8);
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(tiff)));
+        // BMP reader: NegativeArraySizeException on a negative width in a V4 header
+        byte[] bmp = Arrays.copyOf(write("bmp", 40, 30), 4096);
+        ByteBuffer.wrap(bmp).order(ByteOrder.LITTLE_ENDIAN).putInt(14, 108).putInt(18, -40);
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(bmp)));
+    }
+
+    @Test
+    void testProbeLeavesBufferUntouched() throws IOException {
+        ByteBuffer tiff = ByteBuffer.wrap(write("tiff", 64, 48));
+        int limit = tiff.limit();
+        ImageHeaderProbe.probe(tiff);
+        assertEquals(0, tiff.position());
+        assertEquals(limit, tiff.limit());
+    }
+
+    static byte[] write(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -1,15 +1,38 @@
 package com.tvscs.imagevalidator;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 
+import com.tvscs.imagevalidator.controller.ImageValidationController;
+import com.tvscs.imagevalidator.domain.dto.ValidationResponse;
 import com.tvscs.imagevalidator.service.ImageValidationService;
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.probe.ImageHeaderProbe;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootTest
 class ImageValidationServiceTest {
@@ -17,6 +40,24 @@ class ImageValidationServiceTest {
     @Autowired
     private ImageValidationService service;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImageValidationController controller;
+
+    @Value("${app.image.max-blur-variance}")
+    private double laplacianThreshold;
+
+    @Value("${app.image.tenengrad-threshold}")
+    private double tenengradThreshold;
+
+    @Value("${app.image.brenner-threshold}")
+    private double brennerThreshold;
+
+    @Value("${app.image.fft-threshold}")
+    private double fftThreshold;
+
     @Test
     void testEmptyFile() throws IOException {
         MockMultipartFile file = new MockMultipartFile("image", "empty.jpg", "image/jpeg", new byte[0]);
@@ -33,6 +74,36 @@ class ImageValidationServiceTest {
         assertEquals("Invalid file type: must be an image", result.message);
     }
 
+    @Test
+    void testContentTypeIsNotTrusted() throws IOException {
+        // A valid PNG declared as something else is validated as the PNG it is
+        MockMultipartFile file = new MockMultipartFile("image", "scan.bin", "application/octet-stream", noisePng(600));
+        var result = service.validateImage(file, 2.0, 2.0, 300);
+        assertEquals("png", result.format);
+        assertTrue(result.valid, result.message);
+    }
+
+    @Test
+    void testImageContentTypeWithNonImageBytes() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "photo.jpg", "image/jpeg",
+                "<html><body>not an image</body></html>".getBytes());
+        var result = service.validateImage(file, 2.0, 2.0, 300);
+        assertFalse(result.valid);
+        assertEquals("unknown", result.format);
+        assertEquals("Invalid file type: must be an image", result.message);
+    }
+
+    @Test
+    void testRecognizedButUnsupportedFormat() throws IOException {
+        ByteArrayOutputStream gif = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(600, 600, BufferedImage.TYPE_BYTE_INDEXED), "gif", gif);
+        MockMultipartFile file = new MockMultipartFile("image", "scan.gif", "image/gif", gif.toByteArray());
+        var result = service.validateImage(file, 2.0, 2.0, 300);
+        assertFalse(result.valid);
+        assertEquals("gif", result.format);
+        assertEquals("Unsupported image format: GIF", result.message);
+    }
+
     @Test
     void testInvalidDimensions() throws IOException {
         MockMultipartFile file = new MockMultipartFile("image", "test.jpg", "image/jpeg", "dummy".getBytes());
@@ -41,6 +112,159 @@ class ImageValidationServiceTest {
         assertEquals("Invalid physical dimensions: must be positive inches", result.message);
     }
 
+    @Test
+    void testSharpnessMetricIsSelectedPerRequest() throws IOException {
+        byte[] png = noisePng(600);
+        String[] ids = {"laplacian", "tenengrad", "brenner", "fft"};
+        double[] thresholds = {laplacianThreshold, tenengradThreshold, brennerThreshold, fftThreshold};
+        for (int i = 0; i < ids.length; i++) {
+            MockMultipartFile file = new MockMultipartFile("image", "scan.png", "image/png", png);
+            ResponseEntity<ValidationResponse> response = controller.validateImage(file, 2.0, 2.0, 300, ids[i]);
+            assertEquals(HttpStatus.OK, response.getStatusCode(), ids[i] + ": " + response.getBody().getMessage());
+            assertEquals(ids[i], response.getBody().getSharpnessMetric());
+            assertEquals(thresholds[i], response.getBody().getBlurThreshold(), 1e-9, ids[i]);
+            assertTrue(response.getBody().getBlurVariance() >= thresholds[i], ids[i]);
+        }
+        // Ids are case-insensitive; no id means app.image.sharpness-metric
+        var result = service.validateImage(new MockMultipartFile("image", "scan.png", "image/png", png), 2.0, 2.0, 300,
+                " Tenengrad ");
+        assertEquals("tenengrad", result.sharpnessMetric);
+        result = service.validateImage(new MockMultipartFile("image", "scan.png", "image/png", png), 2.0, 2.0, 300, null);
+        assertEquals("laplacian", result.sharpnessMetric);
+    }
+
+    @Test
+    void testUnknownSharpnessMetricIsRejected() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "scan.png", "image/png", noisePng(600));
+        ResponseEntity<ValidationResponse> response = controller.validateImage(file, 2.0, 2.0, 300, "sobel");
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("invalid", response.getBody().getStatus());
+        assertEquals("Unknown sharpness metric: sobel", response.getBody().getMessage());
+        assertEquals("Use one of: brenner, fft, laplacian, tenengrad.", response.getBody().getSuggestion());
+        assertNull(response.getBody().getBlurVariance());
+
+        var result = service.validateStream(new ByteArrayInputStream(noisePng(600)), -1, "image/png", 2.0, 2.0, 300,
+                "sobel");
+        assertFalse(result.valid);
+        assertEquals("Unknown sharpness metric: sobel", result.message);
+    }
+
+    @Test
+    void testStreamRejectsFromHeader() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1200, 1200, BufferedImage.TYPE_BYTE_GRAY), "png", png);
+        byte[] bytes = png.toByteArray();
+        // Larger than one read chunk, so an early stop leaves bytes unread
+        ByteArrayInputStream body = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length + 256 * 1024));
+        var result = service.validateStream(body, bytes.length + 256 * 1024, "image/png", 8.0, 8.0, 300, null);
+        assertFalse(result.valid);
+        assertTrue(result.earlyAbort);
+        assertTrue(result.message.startsWith("Insufficient resolution"));
+        assertTrue(body.available() > 0);
+    }
+
+    @Test
+    void testExifOrientationSwapsDimensionsBeforeChecks() throws IOException {
+        // Stored 900x600; the 2x3 inch target at 300 DPI needs a 600x900 portrait image
+        byte[] stored = noise("jpeg", BufferedImage.TYPE_BYTE_GRAY, 900, 600);
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            MockMultipartFile file = new MockMultipartFile("image", "rotated.jpg", "image/jpeg",
+                    withExif(stored, orientation));
+            var result = service.validateImage(file, 2.0, 3.0, 300);
+            if (orientation >= 5) {
+                // Transposing orientations: validated as displayed, 600 px wide
+                assertTrue(result.valid, orientation + ": " + result.message);
+                assertEquals(100, result.widthPct, 1e-9);
+                assertEquals(100, result.heightPct, 1e-9);
+                assertTrue(result.message.endsWith("600 x 900 px)."), result.message);
+            } else {
+                assertFalse(result.valid, String.valueOf(orientation));
+                // As stored: 900x600 is only 2/3 of the required height
+                assertEquals(150, result.widthPct, 1e-9);
+                assertTrue(result.message.startsWith("Insufficient resolution"), result.message);
+            }
+        }
+    }
+
+    @Test
+    void testBlurVarianceOfRotatedJpegMatchesTheOrientedDecode() throws IOException {
+        // Orientation 6 (rotate 90 CW): the blur decode keeps the stored orientation, the score must not change
+        byte[] jpeg = withExif(noise("jpeg", BufferedImage.TYPE_BYTE_GRAY, 900, 600), 6);
+        var result = service.validateImage(new MockMultipartFile("image", "rotated.jpg", "image/jpeg", jpeg), 2.0, 3.0,
+                300);
+        assertTrue(result.valid, result.message);
+        Mat oriented = Imgcodecs.imdecode(new MatOfByte(jpeg), Imgcodecs.IMREAD_GRAYSCALE);
+        assertEquals(600, oriented.cols());
+        assertEquals(FusedLaplacian.variance(oriented), result.blurVariance, 0);
+        oriented.release();
+    }
+
+    @Test
+    void testUnreadableHeaderIsValidatedFromTheDecode() throws IOException {
+        byte[] bmp = noise("bmp", BufferedImage.TYPE_3BYTE_BGR, 600, 600);
+        byte[] unreadable = withInfoHeaderSize(bmp, 36);
+        assertNull(ImageHeaderProbe.probe(ByteBuffer.wrap(unreadable)));
+
+        // Same pixels, same blur result as the header path
+        var expected = service.validateImage(new MockMultipartFile("image", "scan.bmp", "image/bmp", bmp), 2.0, 2.0, 300);
+        var result = service.validateImage(new MockMultipartFile("image", "scan.bmp", "image/bmp", unreadable), 2.0, 2.0,
+                300);
+        assertTrue(result.valid, result.message);
+        assertEquals(expected.message, result.message);
+        assertEquals(expected.blurVariance, result.blurVariance, 1e-9);
+        assertEquals(expected.blurScale, result.blurScale);
+        assertEquals(expected.sharpnessEngine, result.sharpnessEngine);
+        assertEquals(0, meterRegistry.get("image.memory.budget.used").gauge().value());
+
+        // Dimension limits still apply, from the decoded raster
+        byte[] small = withInfoHeaderSize(noise("bmp", BufferedImage.TYPE_3BYTE_BGR, 400, 400), 36);
+        result = service.validateImage(new MockMultipartFile("image", "small.bmp", "image/bmp", small), 2.0, 2.0, 300);
+        assertFalse(result.valid);
+        assertTrue(result.message.startsWith("Insufficient resolution"), result.message);
+        assertTrue(result.message.contains("400x400 px"), result.message);
+        assertEquals(-1.0, result.blurVariance);
+        assertEquals(0, meterRegistry.get("image.memory.budget.used").gauge().value());
+    }
+
+    /**
+     * Declares a different BMP info header size. 36 bytes is read by OpenCV (pixels are located by the file header's
+     * offset), but neither by the header parser nor by ImageIO.
+     */
+    private static byte[] withInfoHeaderSize(byte[] bmp, int size) {
+        byte[] copy = bmp.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(14, size);
+        return copy;
+    }
+
+    /**
+     * Inserts an EXIF segment (300 dpi, the given orientation, no thumbnail) right after SOI.
+     */
+    static byte[] withExif(byte[] jpeg, int orientation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.writeBytes(JpegMetadataReaderTest.exif(ByteOrder.BIG_ENDIAN, 300, orientation, new byte[0], 0));
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static byte[] noisePng(int side) throws IOException {
+        return noise("png", BufferedImage.TYPE_BYTE_GRAY, side, side);
+    }
+
+    static byte[] noise(String format, int imageType, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        Random random = new Random(width);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = random.nextInt(256);
+                image.setRGB(x, y, v << 16 | v << 8 | v);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
     // Note: For full image validation tests, you would need actual image bytes.
     // This is a basic structure; expand with real image data for comprehensive testing.
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.tvscs.imagevalidator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.tvscs.imagevalidator.service.probe.ImageMetadata;
+import com.tvscs.imagevalidator.service.probe.JpegMetadataReader;
+
+class JpegMetadataReaderTest {
+
+    private static final byte[] THUMBNAIL = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, 4, 5, 6, (byte) 0xFF, (byte) 0xD9};
+
+    @Test
+    void testJfifDensity() {
+        ImageMetadata inches = read(jfif(1, 300));
+        assertEquals(300, inches.xDpi(), 1e-9);
+        assertEquals(300, inches.yDpi(), 1e-9);
+        // Dots per centimetre
+        assertEquals(299.72, read(jfif(2, 118)).xDpi(), 1e-9);
+        // Aspect ratio only: no density
+        assertSame(ImageMetadata.NONE, read(jfif(0, 1)));
+    }
+
+    @Test
+    void testExifResolutionInBothByteOrders() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            ByteBuffer data = jpeg(jfif(1, 72), exif(order, 300, 6, THUMBNAIL, THUMBNAIL.length));
+            ImageMetadata metadata = JpegMetadataReader.read(data);
+            // EXIF wins over JFIF; IFD1 (the thumbnail's 72 dpi per cm, orientation 1) does not override IFD0
+            assertEquals(300, metadata.xDpi(), 1e-9, order.toString());
+            assertEquals(300, metadata.yDpi(), 1e-9, order.toString());
+            assertEquals(6, metadata.orientation(), order.toString());
+            assertTrue(metadata.swapsDimensions());
+            assertTrue(metadata.hasThumbnail());
+            assertEquals(THUMBNAIL.length, metadata.thumbnailLength());
+            for (int i = 0; i < THUMBNAIL.length; i++) {
+                assertEquals(THUMBNAIL[i], data.get(metadata.thumbnailOffset() + i));
+            }
+        }
+    }
+
+    @Test
+    void testThumbnailOutsideSegmentIsIgnored() {
+        ImageMetadata metadata = read(exif(ByteOrder.BIG_ENDIAN, 300, 1, THUMBNAIL, THUMBNAIL.length + 1));
+        assertFalse(metadata.hasThumbnail());
+        assertEquals(300, metadata.xDpi(), 1e-9);
+    }
+
+    @Test
+    void testNonJpegHasNoMetadata() {
+        assertSame(ImageMetadata.NONE, JpegMetadataReader.read(ByteBuffer.wrap(new byte[]{(byte) 0x89, 'P', 'N', 'G'})));
+        assertSame(ImageMetadata.NONE, JpegMetadataReader.read(jpeg()));
+    }
+
+    private static ImageMetadata read(byte[]... segments) {
+        return JpegMetadataReader.read(jpeg(segments));
+    }
+
+    /**
+     * SOI, the given segments and an empty SOS (where the reader stops).
+     */
+    private static ByteBuffer jpeg(byte[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        for (byte[] segment : segments) {
+            out.writeBytes(segment);
+        }
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2});
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * @param units JFIF density units (0 = aspect ratio only, 1 = per inch, 2 = per centimetre).
+     */
+    static byte[] jfif(int units, int density) {
+        return ByteBuffer.allocate(18).put((byte) 0xFF).put((byte) 0xE0).putShort((short) 16)
+                .put("JFIF\0".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 1).put((byte) units)
+                .putShort((short) density).putShort((short) density).putShort((short) 0).array();
+    }
+
+    /**
+     * APP1 EXIF segment. IFD0 holds the image's resolution (per inch) and orientation; IFD1 holds the thumbnail's own
+     * 72 per centimetre and orientation 1, and the thumbnail location, with the thumbnail bytes right after it.
+     */
+    static byte[] exif(ByteOrder order, int dpi, int orientation, byte[] thumbnail, int declaredThumbnailLength) {
+        ByteBuffer tiff = ByteBuffer.allocate(152 + thumbnail.length).order(order);
+        tiff.put((order == ByteOrder.LITTLE_ENDIAN ? "II" : "MM").getBytes(StandardCharsets.US_ASCII))
+                .putShort((short) 42).putInt(8);
+        // IFD0 at 8, its rationals at 62 and 70
+        tiff.putShort((short) 4);
+        entry(tiff, 0x0112, 3, orientation);
+        entry(tiff, 0x011A, 5, 62);
+        entry(tiff, 0x011B, 5, 70);
+        entry(tiff, 0x0128, 3, 2);
+        tiff.putInt(78);
+        tiff.putInt(dpi).putInt(1).putInt(dpi).putInt(1);
+        // IFD1 at 78, its rational at 144, the thumbnail at 152
+        tiff.putShort((short) 5);
+        entry(tiff, 0x0112, 3, 1);
+        entry(tiff, 0x011A, 5, 144);
+        entry(tiff, 0x0128, 3, 3);
+        entry(tiff, 0x0201, 4, 152);
+        entry(tiff, 0x0202, 4, declaredThumbnailLength);
+        tiff.putInt(0);
+        tiff.putInt(72).putInt(1);
+        tiff.put(thumbnail);
+        return ByteBuffer.allocate(10 + tiff.capacity()).put((byte) 0xFF).put((byte) 0xE1)
+                .putShort((short) (8 + tiff.capacity())).put("Exif\0\0".getBytes(StandardCharsets.US_ASCII))
+                .put(tiff.array()).array();
+    }
+
+    /**
+     * One IFD entry with a single value; SHORT (type 3) values sit in the first two bytes of the value field.
+     */
+    private static void entry(ByteBuffer ifd, int tag, int type, int value) {
+        ifd.putShort((short) tag).putShort((short) type).putInt(1);
+        if (type == 3) {
+            ifd.putShort((short) value).putShort((short) 0);
+        } else {
+            ifd.putInt(value);
+        }
+    }
+}
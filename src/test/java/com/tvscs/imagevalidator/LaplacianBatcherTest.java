@@ -0,0 +1,65 @@
+package com.tvscs.imagevalidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.LaplacianBatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LaplacianBatcherTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testBatchedVarianceMatchesSingleImage() {
+        LaplacianBatcher batcher = new LaplacianBatcher(true, 250000, 0, 16, new SimpleMeterRegistry());
+        for (int[] size : new int[][]{{1, 1}, {1, 7}, {7, 1}, {2, 2}, {97, 61}, {120, 160}}) {
+            Mat gray = random(size[0], size[1]);
+            assertEquals(FusedLaplacian.variance(gray), batcher.variance(gray), 0, size[0] + "x" + size[1]);
+            gray.release();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsShareBatches() throws Exception {
+        LaplacianBatcher batcher = new LaplacianBatcher(true, 250000, 5000, 8, new SimpleMeterRegistry());
+        List<Mat> images = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            images.add(random(40 + 7 * i, 200 - 3 * i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (Mat gray : images) {
+                results.add(executor.submit(() -> batcher.variance(gray)));
+            }
+            for (int i = 0; i < images.size(); i++) {
+                assertEquals(FusedLaplacian.variance(images.get(i)), results.get(i).get(), 0, "image " + i);
+            }
+        } finally {
+            executor.shutdown();
+            images.forEach(Mat::release);
+        }
+    }
+
+    private static Mat random(int rows, int cols) {
+        Mat gray = new Mat(rows, cols, CvType.CV_8UC1);
+        Core.randu(gray, 0, 256);
+        return gray;
+    }
+}
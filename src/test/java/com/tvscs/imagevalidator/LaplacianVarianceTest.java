@@ -0,0 +1,144 @@
+package com.tvscs.imagevalidator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.SampledLaplacian;
+import com.tvscs.imagevalidator.service.blur.SharpnessEngine;
+import com.tvscs.imagevalidator.service.blur.StreamingLaplacian;
+import com.tvscs.imagevalidator.service.blur.TiledSharpness;
+import com.tvscs.imagevalidator.service.blur.VectorLaplacian;
+
+class LaplacianVarianceTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testVectorModuleAvailable() {
+        // Surefire runs with --add-modules jdk.incubator.vector (see pom.xml)
+        assertTrue(SharpnessEngine.VECTOR.isAvailable());
+    }
+
+    @Test
+    void testMatchesOpenCvIncludingBorders() {
+        // Degenerate and odd sizes exercise reflect-101 borders and the scalar tail
+        int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {2, 2}, {3, 5}, {17, 9}, {33, 100}, {377, 641}};
+        for (int[] size : sizes) {
+            Mat gray = new Mat(size[0], size[1], CvType.CV_8UC1);
+            Core.randu(gray, 0, 256);
+            double expected = openCvVariance(gray);
+            double tolerance = Math.max(1e-9, expected * 1e-12);
+            assertEquals(expected, FusedLaplacian.variance(gray), tolerance, "fused " + size[0] + "x" + size[1]);
+            assertEquals(expected, VectorLaplacian.variance(gray), tolerance, "vector " + size[0] + "x" + size[1]);
+            gray.release();
+        }
+    }
+
+    @Test
+    void testIntegerPathsExactOnExtremeResponses() {
+        // 0/255 checkerboard: every response is +/-1020, the largest square the integer accumulators ever see;
+        // wide rows keep many SIMD iterations between flushes
+        Mat checkerboard = new Mat(600, 3000, CvType.CV_8UC1);
+        byte[] row = new byte[checkerboard.cols()];
+        for (int y = 0; y < checkerboard.rows(); y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (byte) (((x + y) & 1) == 0 ? 255 : 0);
+            }
+            checkerboard.put(y, 0, row);
+        }
+        Mat flat = new Mat(600, 3000, CvType.CV_8UC1, new Scalar(128));
+        Mat random = new Mat(600, 3000, CvType.CV_8UC1);
+        Core.randu(random, 0, 256);
+        for (Mat gray : new Mat[]{checkerboard, flat, random}) {
+            double expected = openCvVariance(gray);
+            // Documented tolerance: the integer sums are exact; only the CV_64F path's double rounding differs
+            double tolerance = Math.max(1e-9, expected * 1e-12);
+            assertEquals(expected, FusedLaplacian.variance(gray), tolerance, "fused");
+            assertEquals(expected, VectorLaplacian.variance(gray), tolerance, "vector");
+            assertEquals(expected, TiledSharpness.compute(gray, 4, ForkJoinPool.commonPool()).globalVariance(), tolerance,
+                    "tiled");
+            assertEquals(expected, SampledLaplacian.estimate(gray, expected, 3, 64, 1.0, true).variance(), tolerance,
+                    "sampled");
+            gray.release();
+        }
+    }
+
+    @Test
+    void testStreamingMatchesOpenCvDecode() throws IOException {
+        // Odd sizes leave partial MCUs; each chroma subsampling changes the MCU height (8, 16 or 32 luma rows)
+        int[][] sizes = {{1, 1}, {9, 1}, {17, 33}, {241, 317}};
+        int[] samplings = {Imgcodecs.IMWRITE_JPEG_SAMPLING_FACTOR_444, Imgcodecs.IMWRITE_JPEG_SAMPLING_FACTOR_420,
+                Imgcodecs.IMWRITE_JPEG_SAMPLING_FACTOR_411, Imgcodecs.IMWRITE_JPEG_SAMPLING_FACTOR_440};
+        for (int[] size : sizes) {
+            for (int sampling : samplings) {
+                Mat color = new Mat(size[0], size[1], CvType.CV_8UC3);
+                Core.randu(color, 0, 256);
+                MatOfByte encoded = new MatOfByte();
+                Imgcodecs.imencode(".jpg", color, encoded, new MatOfInt(Imgcodecs.IMWRITE_JPEG_SAMPLING_FACTOR, sampling,
+                        Imgcodecs.IMWRITE_JPEG_RST_INTERVAL, 2));
+                Mat gray = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_GRAYSCALE);
+                byte[] bytes = encoded.toArray();
+                ByteBuffer jpeg = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+                String label = size[0] + "x" + size[1] + " sampling 0x" + Integer.toHexString(sampling);
+                assertEquals(FusedLaplacian.variance(gray), StreamingLaplacian.variance(jpeg, false), 0, label);
+                assertEquals(FusedLaplacian.variance(gray), StreamingLaplacian.variance(jpeg, true), 0, label);
+                color.release();
+                encoded.release();
+                gray.release();
+            }
+        }
+    }
+
+    @Test
+    void testForgedFrameSizeIsRejected() {
+        Mat gray = new Mat(16, 16, CvType.CV_8UC1);
+        Core.randu(gray, 0, 256);
+        MatOfByte encoded = new MatOfByte();
+        Imgcodecs.imencode(".jpg", gray, encoded);
+        byte[] bytes = encoded.toArray();
+        gray.release();
+        encoded.release();
+        int sof = 2;
+        while (bytes[sof] != (byte) 0xFF || bytes[sof + 1] != (byte) 0xC0) {
+            sof++;
+        }
+        // A few hundred bytes declaring 65535x65535: about 67M blocks the entropy data cannot hold
+        for (int i = sof + 5; i < sof + 9; i++) {
+            bytes[i] = (byte) 0xFF;
+        }
+        ByteBuffer jpeg = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertThrows(IOException.class, () -> StreamingLaplacian.variance(jpeg, false));
+        assertThrows(IOException.class, () -> StreamingLaplacian.variance(jpeg, true));
+    }
+
+    private static double openCvVariance(Mat gray) {
+        Mat laplacian = new Mat();
+        Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+        MatOfDouble mean = new MatOfDouble();
+        MatOfDouble std = new MatOfDouble();
+        Core.meanStdDev(laplacian, mean, std);
+        double variance = Math.pow(std.get(0, 0)[0], 2);
+        laplacian.release();
+        return variance;
+    }
+}
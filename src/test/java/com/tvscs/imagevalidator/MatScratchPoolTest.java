@@ -0,0 +1,70 @@
+package com.tvscs.imagevalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import com.tvscs.imagevalidator.service.io.MatScratchPool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MatScratchPoolTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testSlotGrowsToHighWaterMarkAndIsReused() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MatScratchPool pool = new MatScratchPool(1, 1 << 20, 60000, registry);
+        long address;
+        try (MatScratchPool.Lease scratch = pool.lease()) {
+            Mat large = scratch.mat(0, 300, 400, CvType.CV_8UC1);
+            address = large.dataAddr();
+            large.release();
+        }
+        try (MatScratchPool.Lease scratch = pool.lease()) {
+            // Smaller request: a view of the same buffer, nothing allocated
+            Mat small = scratch.mat(0, 100, 200, CvType.CV_8UC1);
+            assertEquals(100, small.rows());
+            assertEquals(200, small.cols());
+            assertEquals(address, small.dataAddr());
+            small.release();
+            // Over the retained limit: one-off Mat, the slot keeps its buffer
+            Mat huge = scratch.mat(1, 2000, 2000, CvType.CV_8UC1);
+            assertEquals(2000, huge.rows());
+            huge.release();
+        }
+        assertEquals(300 * 400, registry.get("image.mat.scratch.retained").gauge().value());
+    }
+
+    @Test
+    void testConcurrentLeasesGetSeparateStripes() {
+        MatScratchPool pool = new MatScratchPool(2, 1 << 20, 60000, new SimpleMeterRegistry());
+        try (MatScratchPool.Lease first = pool.lease(); MatScratchPool.Lease second = pool.lease()) {
+            Mat a = first.mat(0, 10, 10, CvType.CV_8UC1);
+            Mat b = second.mat(0, 10, 10, CvType.CV_8UC1);
+            assertNotEquals(a.dataAddr(), b.dataAddr());
+            a.release();
+            b.release();
+        }
+    }
+
+    @Test
+    void testIdleStripesAreTrimmed() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MatScratchPool pool = new MatScratchPool(1, 1 << 20, 0, registry);
+        try (MatScratchPool.Lease scratch = pool.lease()) {
+            scratch.mat(2, 64, 64, CvType.CV_16SC1).release();
+        }
+        assertEquals(64 * 64 * 2, registry.get("image.mat.scratch.retained").gauge().value());
+        pool.trimIdle();
+        assertEquals(0, registry.get("image.mat.scratch.retained").gauge().value());
+    }
+}
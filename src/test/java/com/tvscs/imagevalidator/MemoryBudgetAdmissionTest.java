@@ -0,0 +1,87 @@
+package com.tvscs.imagevalidator;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.controller.ImageValidationController;
+import com.tvscs.imagevalidator.exceptions.DecodeTooLargeException;
+import com.tvscs.imagevalidator.exceptions.DefaultExceptionHandler;
+import com.tvscs.imagevalidator.service.ImageValidationService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A forged header declaring far more pixels than the decode memory budget could ever hold is rejected at once
+ * (413), instead of queueing for memory (or, capped to the budget, being decoded alone).
+ */
+@SpringBootTest(properties = {
+        "app.image.memory-budget-bytes=67108864",
+        "app.image.memory-budget-wait-ms=5000"
+})
+class MemoryBudgetAdmissionTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Autowired
+    private ImageValidationController controller;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testForgedOversizedHeaderIsRejectedWithoutQueueing() throws IOException {
+        byte[] forged = withSofDimensions(ImageValidationServiceTest.noise("jpeg", BufferedImage.TYPE_BYTE_GRAY, 600, 600),
+                65535, 65535);
+        double oversized = meterRegistry.get("image.memory.budget.oversized").counter().count();
+        long start = System.nanoTime();
+        DecodeTooLargeException e = assertThrows(DecodeTooLargeException.class, () -> service.validateImage(
+                new MockMultipartFile("image", "forged.jpg", "image/jpeg", forged), 2.0, 2.0, 300));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "rejected without waiting for memory");
+        assertTrue(e.getMessage().contains("more than this server allows (64 MiB)"), e.getMessage());
+        assertEquals(oversized + 1, meterRegistry.get("image.memory.budget.oversized").counter().count());
+        assertEquals(0, meterRegistry.get("image.memory.budget.used").gauge().value());
+
+        // The controller passes it on to the handler: 413, no Retry-After (waiting cannot help)
+        e = assertThrows(DecodeTooLargeException.class, () -> controller.validateImage(
+                new MockMultipartFile("image", "forged.jpg", "image/jpeg", forged), 2.0, 2.0, 300, null));
+        ResponseEntity<Map<String, String>> response = new DefaultExceptionHandler().handleDecodeTooLarge(e);
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(e.getMessage(), response.getBody().get("error"));
+
+        // Real images within the budget are unaffected
+        var result = service.validateImage(new MockMultipartFile("image", "scan.jpg", "image/jpeg",
+                ImageValidationServiceTest.noise("jpeg", BufferedImage.TYPE_BYTE_GRAY, 600, 600)), 2.0, 2.0, 300);
+        assertTrue(result.valid, result.message);
+        assertEquals(0, meterRegistry.get("image.memory.budget.used").gauge().value());
+    }
+
+    /**
+     * Rewrites the baseline SOF0 frame header's dimensions; the entropy-coded data still holds the original image.
+     */
+    private static byte[] withSofDimensions(byte[] jpeg, int width, int height) {
+        byte[] copy = jpeg.clone();
+        for (int i = 2; i + 8 < copy.length; i++) {
+            if ((copy[i] & 0xFF) == 0xFF && (copy[i + 1] & 0xFF) == 0xC0) {
+                ByteBuffer.wrap(copy).putShort(i + 5, (short) height).putShort(i + 7, (short) width);
+                return copy;
+            }
+        }
+        throw new IllegalArgumentException("No SOF0 segment");
+    }
+}
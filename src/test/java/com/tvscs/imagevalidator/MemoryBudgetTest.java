@@ -0,0 +1,99 @@
+package com.tvscs.imagevalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.tvscs.imagevalidator.exceptions.DecodeTooLargeException;
+import com.tvscs.imagevalidator.exceptions.MemoryBudgetExceededException;
+import com.tvscs.imagevalidator.service.compute.MemoryBudget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MemoryBudgetTest {
+
+    private static final long MIB = 1 << 20;
+
+    @Test
+    void testRequestsOverBudgetAreRejectedAfterWaiting() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryBudget budget = new MemoryBudget(64 * MIB, 0.5, 50, registry);
+        MemoryBudget.Grant first = budget.acquire(48 * MIB);
+        assertEquals(48 * MIB, registry.get("image.memory.budget.used").gauge().value());
+        long start = System.nanoTime();
+        assertThrows(MemoryBudgetExceededException.class, () -> budget.acquire(48 * MIB));
+        assertTrue(System.nanoTime() - start >= 40_000_000L, "waited before rejecting");
+        assertEquals(1, registry.get("image.memory.budget.rejected").counter().count());
+
+        first.close();
+        first.close();
+        assertEquals(0, registry.get("image.memory.budget.used").gauge().value());
+        budget.acquire(48 * MIB).close();
+    }
+
+    @Test
+    void testQueuedRequestIsAdmittedWhenMemoryIsReturned() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(64 * MIB, 0.5, 5000, new SimpleMeterRegistry());
+        MemoryBudget.Grant first = budget.acquire(40 * MIB);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            first.close();
+        });
+        releaser.start();
+        budget.acquire(40 * MIB).close();
+        releaser.join();
+    }
+
+    @Test
+    void testOversizedPredictionIsRejectedWithoutWaiting() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryBudget budget = new MemoryBudget(16 * MIB, 0.5, 5000, registry);
+        long start = System.nanoTime();
+        assertThrows(DecodeTooLargeException.class, () -> budget.acquire(16 * MIB + 1024));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "rejected without queueing");
+        assertEquals(0, registry.get("image.memory.budget.used").gauge().value());
+        assertEquals(1, registry.get("image.memory.budget.oversized").counter().count());
+        assertEquals(0, registry.get("image.memory.budget.rejected").counter().count());
+
+        // Extending past the whole budget is rejected at once too; the grant keeps what it had
+        MemoryBudget.Grant grant = budget.acquire(16 * MIB);
+        start = System.nanoTime();
+        assertThrows(DecodeTooLargeException.class, () -> grant.extend(200 * MIB));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "rejected without queueing");
+        assertEquals(16 * MIB, registry.get("image.memory.budget.used").gauge().value());
+        grant.close();
+        assertEquals(0, registry.get("image.memory.budget.used").gauge().value());
+    }
+
+    @Test
+    void testGrantIsExtendedToALargerPrediction() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryBudget budget = new MemoryBudget(64 * MIB, 0.5, 50, registry);
+        MemoryBudget.Grant grant = budget.acquire(16 * MIB);
+        grant.extend(8 * MIB);
+        assertEquals(16 * MIB, registry.get("image.memory.budget.used").gauge().value());
+        grant.extend(40 * MIB);
+        assertEquals(40 * MIB, registry.get("image.memory.budget.used").gauge().value());
+        assertThrows(MemoryBudgetExceededException.class, () -> budget.acquire(32 * MIB));
+
+        // Extending past what others hold waits and is rejected; the grant keeps what it had
+        MemoryBudget.Grant other = budget.acquire(16 * MIB);
+        assertThrows(MemoryBudgetExceededException.class, () -> grant.extend(60 * MIB));
+        assertEquals(56 * MIB, registry.get("image.memory.budget.used").gauge().value());
+        other.close();
+        grant.close();
+        assertEquals(0, registry.get("image.memory.budget.used").gauge().value());
+    }
+
+    @Test
+    void testDefaultBudgetIsAFractionOfPhysicalMemory() {
+        MemoryBudget budget = new MemoryBudget(0, 0.5, 0, new SimpleMeterRegistry());
+        assertTrue(budget.budgetBytes() > 0);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tvscs.imagevalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import com.tvscs.imagevalidator.service.io.NativeScope;
+
+class NativeScopeTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testOwnedBytesAreCountedUntilClose() {
+        long before = NativeScope.liveBytes();
+        Mat owned;
+        Mat view;
+        try (NativeScope scope = NativeScope.open()) {
+            owned = scope.own(new Mat(100, 200, CvType.CV_16SC1));
+            view = scope.view(owned.submat(0, 10, 0, 10));
+            // Views share the owner's buffer and are not counted again
+            assertEquals(before + 100 * 200 * 2, NativeScope.liveBytes());
+        }
+        assertEquals(before, NativeScope.liveBytes());
+        assertTrue(owned.empty());
+        assertTrue(view.empty());
+    }
+
+    @Test
+    void testMatsAreReleasedWhenWorkThrows() {
+        Mat[] owned = new Mat[1];
+        assertThrows(IllegalStateException.class, () -> {
+            try (NativeScope scope = NativeScope.open()) {
+                owned[0] = scope.own(new Mat(64, 64, CvType.CV_8UC1));
+                throw new IllegalStateException("decode failed");
+            }
+        });
+        assertTrue(owned[0].empty());
+    }
+
+    @Test
+    void testUnclosedScopeIsReportedAsLeak() throws InterruptedException {
+        long leaks = NativeScope.leaks();
+        leak();
+        for (int i = 0; i < 100 && NativeScope.leaks() == leaks; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(leaks + 1, NativeScope.leaks());
+    }
+
+    private static void leak() {
+        NativeScope.open().own(new Mat(8, 8, CvType.CV_8UC1));
+    }
+}
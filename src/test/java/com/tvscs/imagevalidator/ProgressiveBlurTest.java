@@ -0,0 +1,173 @@
+package com.tvscs.imagevalidator;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.controller.ImageValidationController;
+import com.tvscs.imagevalidator.domain.dto.ValidationResponse;
+import com.tvscs.imagevalidator.service.ImageValidationService;
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+
+@SpringBootTest(properties = "app.image.blur-decode-mode=progressive")
+class ProgressiveBlurTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Autowired
+    private ImageValidationController controller;
+
+    @Value("${app.image.max-blur-variance}")
+    private double maxBlurVariance;
+
+    @Value("${app.image.blur-reduced-factors}")
+    private double[] reducedFactors;
+
+    @Test
+    void testFlatImageDecidedOnCoarsestLevel() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(2400, 2400, BufferedImage.TYPE_BYTE_GRAY), "png", png);
+        MockMultipartFile file = new MockMultipartFile("image", "flat.png", "image/png", png.toByteArray());
+        var result = service.validateImage(file, 8.0, 8.0, 300);
+        assertFalse(result.valid);
+        assertEquals(3, result.blurDecisionLevel);
+        assertEquals(8, result.blurScale);
+    }
+
+    @Test
+    void testJpegLevelsAreScaledDecodes() throws IOException {
+        // Sharp: clear-cut at 1/8. Blurred: inside the 1/8 margin band, decided at 1/4
+        int[] expectedLevels = {3, 2};
+        double[] sigmas = {0, 5};
+        for (int i = 0; i < sigmas.length; i++) {
+            byte[] jpeg = encode(document(2400, sigmas[i]), ".jpg");
+            var result = validate(jpeg, "page.jpg", 8.0);
+            assertEquals(sharpAtFullResolution(jpeg), result.valid, "sigma=" + sigmas[i] + ": " + result.message);
+            assertEquals(sigmas[i] == 0, result.valid);
+            assertEquals(expectedLevels[i], result.blurDecisionLevel, "sigma=" + sigmas[i]);
+            int scale = 1 << expectedLevels[i];
+            assertEquals(scale, result.blurScale);
+            assertEquals(maxBlurVariance * reducedFactors[expectedLevels[i] - 1], result.blurThreshold, 1e-9);
+            // The level is libjpeg's DCT-scaled decode, not a resize of the full decode
+            Mat level = Imgcodecs.imdecode(new MatOfByte(jpeg), reducedFlag(scale) | Imgcodecs.IMREAD_IGNORE_ORIENTATION);
+            assertEquals(FusedLaplacian.variance(level), result.blurVariance, 1e-9);
+            level.release();
+        }
+    }
+
+    @Test
+    void testPngLevelsAreResizedFromOneDecode() throws IOException {
+        int[] expectedLevels = {3, 2};
+        double[] sigmas = {0, 5};
+        for (int i = 0; i < sigmas.length; i++) {
+            byte[] png = encode(document(2400, sigmas[i]), ".png");
+            var result = validate(png, "page.png", 8.0);
+            assertEquals(sharpAtFullResolution(png), result.valid, "sigma=" + sigmas[i] + ": " + result.message);
+            assertEquals(sigmas[i] == 0, result.valid);
+            assertEquals(expectedLevels[i], result.blurDecisionLevel, "sigma=" + sigmas[i]);
+            Mat level = Imgcodecs.imdecode(new MatOfByte(png), Imgcodecs.IMREAD_GRAYSCALE);
+            for (int l = 0; l < expectedLevels[i]; l++) {
+                Mat half = new Mat();
+                Imgproc.resize(level, half, new Size(), 0.5, 0.5, Imgproc.INTER_AREA);
+                level.release();
+                level = half;
+            }
+            assertEquals(FusedLaplacian.variance(level), result.blurVariance, 1e-9);
+            level.release();
+        }
+    }
+
+    @Test
+    void testBorderlineLevelsFallThroughToFullResolution() throws IOException {
+        // Grain on a defocused page: within the margin band at 1/4 and 1/2, sharp at full resolution (2.56 MP, so
+        // 1/4 is the coarsest level)
+        Mat document = document(1600, 3);
+        Mat page = new Mat();
+        Imgproc.cvtColor(document, page, Imgproc.COLOR_BGR2GRAY);
+        document.release();
+        Mat grainy = new Mat();
+        page.convertTo(grainy, CvType.CV_16SC1);
+        Mat grain = new Mat(page.size(), CvType.CV_16SC1);
+        Core.setRNGSeed(7);
+        Core.randn(grain, 0, 10);
+        Core.add(grainy, grain, grainy);
+        grainy.convertTo(page, CvType.CV_8UC1);
+        grain.release();
+        grainy.release();
+        byte[] png = encode(page, ".png");
+
+        MockMultipartFile file = new MockMultipartFile("image", "grainy.png", "image/png", png);
+        ResponseEntity<ValidationResponse> response = controller.validateImage(file, 5.33, 5.33, 300, null);
+        ValidationResponse body = response.getBody();
+        assertEquals(0, body.getBlurDecisionLevel());
+        assertEquals(1, body.getBlurScale());
+        assertEquals(maxBlurVariance, body.getBlurThreshold(), 1e-9);
+        Mat full = Imgcodecs.imdecode(new MatOfByte(png), Imgcodecs.IMREAD_GRAYSCALE);
+        assertEquals(FusedLaplacian.variance(full), body.getBlurVariance(), 1e-9);
+        full.release();
+        assertTrue(sharpAtFullResolution(png));
+        assertEquals("valid", body.getStatus(), body.getMessage());
+    }
+
+    private ImageValidationService.ValidationResult validate(byte[] image, String name, double inches) throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", name, "application/octet-stream", image);
+        return service.validateImage(file, inches, inches, 300);
+    }
+
+    private boolean sharpAtFullResolution(byte[] image) {
+        Mat full = Imgcodecs.imdecode(new MatOfByte(image), Imgcodecs.IMREAD_GRAYSCALE);
+        double variance = FusedLaplacian.variance(full);
+        full.release();
+        return variance >= maxBlurVariance;
+    }
+
+    private static int reducedFlag(int scale) {
+        return switch (scale) {
+            case 2 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            default -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+        };
+    }
+
+    private static Mat document(int side, double sigma) {
+        Mat image = new Mat(side, side, CvType.CV_8UC3, new Scalar(235, 235, 235));
+        for (int y = 60; y < side; y += 40) {
+            Imgproc.putText(image, "Passport 1234567890 ABCDEFGH Passport 1234567890 ABCDEFGH", new Point(20, y),
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.2, new Scalar(30, 30, 110), 2);
+        }
+        if (sigma > 0) {
+            Imgproc.GaussianBlur(image, image, new Size(0, 0), sigma);
+        }
+        return image;
+    }
+
+    private static byte[] encode(Mat image, String extension) {
+        MatOfByte out = new MatOfByte();
+        Imgcodecs.imencode(extension, image, out, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 90));
+        image.release();
+        return out.toArray();
+    }
+}
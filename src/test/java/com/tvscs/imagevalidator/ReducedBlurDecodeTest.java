@@ -0,0 +1,79 @@
+package com.tvscs.imagevalidator;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.service.ImageValidationService;
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+
+@SpringBootTest(properties = "app.image.blur-decode-mode=reduced")
+class ReducedBlurDecodeTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Value("${app.image.max-blur-variance}")
+    private double maxBlurVariance;
+
+    @Value("${app.image.blur-reduced-factors}")
+    private double[] reducedFactors;
+
+    @Test
+    void testScaleKeepsMinPixelFloor() throws IOException {
+        // 9 MP: 1/2 leaves 2.25 MP, 1/4 would leave 0.56 MP (< blur-reduced-min-pixels)
+        assertEquals(2, validate(document(3000, 0), 10.0).blurScale);
+        // 4 MP: 1/2 would leave 1 MP, so full resolution
+        assertEquals(1, validate(document(2000, 0), 6.67).blurScale);
+    }
+
+    @Test
+    void testCalibratedThresholdKeepsFullScaleVerdict() throws IOException {
+        for (double sigma : new double[]{0, 3}) {
+            byte[] jpeg = document(3000, sigma);
+            Mat full = Imgcodecs.imdecode(new MatOfByte(jpeg), Imgcodecs.IMREAD_GRAYSCALE);
+            boolean sharpAtFullScale = FusedLaplacian.variance(full) >= maxBlurVariance;
+            full.release();
+
+            var result = validate(jpeg, 10.0);
+            assertEquals(2, result.blurScale);
+            assertEquals(maxBlurVariance * reducedFactors[0], result.blurThreshold, 1e-9);
+            assertEquals(sigma == 0, sharpAtFullScale, "fixture sigma=" + sigma);
+            assertEquals(sharpAtFullScale, result.valid, "sigma=" + sigma + ": " + result.message);
+        }
+    }
+
+    private ImageValidationService.ValidationResult validate(byte[] jpeg, double inches) throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "page.jpg", "image/jpeg", jpeg);
+        return service.validateImage(file, inches, inches, 300);
+    }
+
+    private static byte[] document(int side, double sigma) {
+        Mat image = new Mat(side, side, CvType.CV_8UC3, new Scalar(235, 235, 235));
+        for (int y = 60; y < side; y += 40) {
+            Imgproc.putText(image, "Passport 1234567890 ABCDEFGH Passport 1234567890 ABCDEFGH", new Point(20, y),
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.2, new Scalar(30, 30, 110), 2);
+        }
+        if (sigma > 0) {
+            Imgproc.GaussianBlur(image, image, new Size(0, 0), sigma);
+        }
+        MatOfByte out = new MatOfByte();
+        Imgcodecs.imencode(".jpg", image, out, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 90));
+        image.release();
+        return out.toArray();
+    }
+}
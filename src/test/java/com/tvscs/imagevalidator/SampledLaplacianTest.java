@@ -0,0 +1,73 @@
+package com.tvscs.imagevalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.SampledLaplacian;
+
+class SampledLaplacianTest {
+
+    private static Mat doc;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+        doc = new Mat(2400, 1800, CvType.CV_8UC1, new Scalar(235));
+        for (int y = 60; y < 2400; y += 45) {
+            Imgproc.putText(doc, "Lorem ipsum dolor sit amet, consectetur 0123456789", new Point(40, y),
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.1, new Scalar(20), 2);
+        }
+    }
+
+    @AfterAll
+    static void release() {
+        doc.release();
+    }
+
+    @Test
+    void testClearCutImagesDecidedFromSample() {
+        SampledLaplacian.Estimate sharp = SampledLaplacian.estimate(doc, 100, 3, 64, 0.25, false);
+        assertTrue(sharp.decided());
+        assertTrue(sharp.variance() - sharp.halfWidth() >= 100, "sharp lower bound " + sharp);
+        assertTrue(sharp.sampledFraction() <= 0.25, "sharp fraction " + sharp.sampledFraction());
+
+        Mat blurry = new Mat();
+        Imgproc.GaussianBlur(doc, blurry, new Size(0, 0), 2.5);
+        SampledLaplacian.Estimate estimate = SampledLaplacian.estimate(blurry, 100, 3, 64, 0.25, false);
+        assertTrue(estimate.decided());
+        assertTrue(estimate.variance() + estimate.halfWidth() < 100, "blurry upper bound " + estimate);
+        assertTrue(estimate.sampledFraction() <= 0.25, "blurry fraction " + estimate.sampledFraction());
+        blurry.release();
+    }
+
+    @Test
+    void testBorderlineImageLeftUndecided() {
+        double exact = FusedLaplacian.variance(doc);
+        SampledLaplacian.Estimate estimate = SampledLaplacian.estimate(doc, exact, 3, 64, 0.25, false);
+        assertFalse(estimate.decided());
+        assertTrue(estimate.variance() - estimate.halfWidth() < exact && exact <= estimate.variance() + estimate.halfWidth());
+    }
+
+    @Test
+    void testFullSampleIsExact() {
+        // With no sampling budget limit a borderline image ends up scoring every row once
+        double exact = FusedLaplacian.variance(doc);
+        SampledLaplacian.Estimate scalar = SampledLaplacian.estimate(doc, exact, 3, 64, 1.0, false);
+        SampledLaplacian.Estimate vector = SampledLaplacian.estimate(doc, exact, 3, 64, 1.0, true);
+        assertTrue(scalar.decided());
+        assertEquals(doc.rows(), scalar.rowsScored());
+        assertEquals(exact, scalar.variance(), exact * 1e-12);
+        assertEquals(scalar, vector);
+    }
+}
@@ -0,0 +1,52 @@
+package com.tvscs.imagevalidator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.BrennerMetric;
+import com.tvscs.imagevalidator.service.blur.FftHighFrequencyMetric;
+import com.tvscs.imagevalidator.service.blur.LaplacianVarianceMetric;
+import com.tvscs.imagevalidator.service.blur.SharpnessMetric;
+import com.tvscs.imagevalidator.service.blur.TenengradMetric;
+
+class SharpnessMetricTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testScoresDecreaseWithBlur() {
+        Mat doc = new Mat(900, 1200, CvType.CV_8UC1, new Scalar(235));
+        for (int y = 40; y < 900; y += 35) {
+            Imgproc.putText(doc, "Lorem ipsum dolor sit amet 12345", new Point(30, y), Imgproc.FONT_HERSHEY_SIMPLEX, 0.9,
+                    new Scalar(20), 2);
+        }
+        List<SharpnessMetric> metrics = List.of(new LaplacianVarianceMetric(), new TenengradMetric(), new BrennerMetric(),
+                new FftHighFrequencyMetric());
+        for (SharpnessMetric metric : metrics) {
+            double previous = Double.POSITIVE_INFINITY;
+            for (double sigma : new double[]{0, 1.0, 2.5}) {
+                Mat sample = doc.clone();
+                if (sigma > 0) {
+                    Imgproc.GaussianBlur(doc, sample, new Size(0, 0), sigma);
+                }
+                double score = metric.score(sample);
+                assertTrue(score < previous, metric.id() + " sigma=" + sigma + " score=" + score);
+                previous = score;
+                sample.release();
+            }
+        }
+        doc.release();
+    }
+}
@@ -0,0 +1,46 @@
+package com.tvscs.imagevalidator;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.service.ImageValidationService;
+
+/**
+ * Each metric is decided by its own threshold property: with every threshold raised far above what a sharp image
+ * scores, the image that passes under the defaults (ImageValidationServiceTest) fails under every metric.
+ */
+@SpringBootTest(properties = {
+        "app.image.max-blur-variance=1000000000",
+        "app.image.tenengrad-threshold=2000000000",
+        "app.image.brenner-threshold=3000000000",
+        "app.image.fft-threshold=0.999"
+})
+class SharpnessMetricThresholdTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Test
+    void testEachMetricUsesItsOwnThresholdProperty() throws IOException {
+        byte[] png = ImageValidationServiceTest.noise("png", BufferedImage.TYPE_BYTE_GRAY, 600, 600);
+        String[] ids = {"laplacian", "tenengrad", "brenner", "fft"};
+        double[] thresholds = {1e9, 2e9, 3e9, 0.999};
+        for (int i = 0; i < ids.length; i++) {
+            MockMultipartFile file = new MockMultipartFile("image", "scan.png", "image/png", png);
+            var result = service.validateImage(file, 2.0, 2.0, 300, ids[i]);
+            assertEquals(ids[i], result.sharpnessMetric);
+            assertEquals(thresholds[i], result.blurThreshold, 1e-9, ids[i]);
+            assertFalse(result.valid, ids[i]);
+            assertTrue(result.blurVariance < thresholds[i], ids[i]);
+            assertTrue(result.message.contains("Image too blurry"), ids[i] + ": " + result.message);
+        }
+    }
+}
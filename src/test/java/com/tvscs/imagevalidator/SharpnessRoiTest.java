@@ -0,0 +1,78 @@
+package com.tvscs.imagevalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.SharpnessRoi;
+import com.tvscs.imagevalidator.service.blur.VectorLaplacian;
+import com.tvscs.imagevalidator.service.io.MatScratchPool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SharpnessRoiTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testRegionCoversPageAndSkipsDesk() {
+        Mat frame = pageOnDesk();
+        MatScratchPool pool = new MatScratchPool(1, 1 << 24, 60000, new SimpleMeterRegistry());
+        Rect roi;
+        try (MatScratchPool.Lease scratch = pool.lease()) {
+            roi = SharpnessRoi.find(frame, 16, 24, 0.05, 0.8, scratch);
+        }
+        // Second pass runs on the grown scratch slots and must find the same region
+        try (MatScratchPool.Lease scratch = pool.lease()) {
+            assertEquals(roi, SharpnessRoi.find(frame, 16, 24, 0.05, 0.8, scratch));
+        }
+        assertNotNull(roi);
+        // The text block (x 530-1100, y 380-840) is inside; most of the desk is not
+        assertTrue(roi.x <= 530 && roi.y <= 380 && roi.br().x >= 1100 && roi.br().y >= 840, roi.toString());
+        assertTrue(roi.area() < 0.5 * frame.total(), roi.toString());
+
+        Mat view = frame.submat(roi);
+        Mat copy = view.clone();
+        double variance = FusedLaplacian.variance(view);
+        assertEquals(FusedLaplacian.variance(copy), variance, 0);
+        assertEquals(variance, VectorLaplacian.variance(view), 0);
+        assertTrue(variance > FusedLaplacian.variance(frame), "plain background no longer dilutes the score");
+        copy.release();
+        view.release();
+        frame.release();
+    }
+
+    @Test
+    void testFlatFrameIsScoredWhole() {
+        Mat flat = new Mat(1200, 1600, CvType.CV_8UC1, new Scalar(128));
+        assertNull(SharpnessRoi.find(flat, 16, 24, 0.05, 0.8, MatScratchPool.unpooled()));
+        flat.release();
+    }
+
+    private static Mat pageOnDesk() {
+        Mat frame = new Mat(1200, 1600, CvType.CV_8UC1);
+        Core.randn(frame, 140, 3);
+        Mat page = frame.submat(360, 860, 500, 1120);
+        page.setTo(new Scalar(245));
+        page.release();
+        for (int y = 400; y < 840; y += 30) {
+            Imgproc.putText(frame, "Lorem ipsum dolor sit amet", new Point(530, y), Imgproc.FONT_HERSHEY_SIMPLEX, 0.8,
+                    new Scalar(20), 2);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,127 @@
+package com.tvscs.imagevalidator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.service.ImageValidationService;
+
+@SpringBootTest(properties = "app.image.thumbnail-prescreen-enabled=true")
+class ThumbnailPrescreenTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Test
+    void testBlurryThumbnailRejectsBeforeFullDecode() throws IOException {
+        Mat page = document(2000);
+        byte[] thumbnail = encode(thumbnail(page, 8));
+        var result = validate(withExif(encode(page), thumbnail, thumbnail.length));
+        page.release();
+        assertFalse(result.valid);
+        assertEquals("exif-thumbnail", result.sharpnessEngine);
+        assertEquals(0, result.blurScale);
+        assertTrue(result.blurVariance < result.blurThreshold, result.message);
+        // IFD0's 300 dpi, not the thumbnail's IFD1 resolution
+        assertEquals(300, result.declaredDpi, 1e-9);
+    }
+
+    @Test
+    void testSharpThumbnailFallsThroughToFullCheck() throws IOException {
+        Mat page = document(2000);
+        byte[] thumbnail = encode(thumbnail(page, 0));
+        var result = validate(withExif(encode(page), thumbnail, thumbnail.length));
+        page.release();
+        assertTrue(result.valid, result.message);
+        assertNotEquals("exif-thumbnail", result.sharpnessEngine);
+        assertTrue(result.blurScale >= 1);
+    }
+
+    @Test
+    void testThumbnailOutsideExifSegmentIsNotDecoded() throws IOException {
+        Mat page = document(2000);
+        byte[] thumbnail = encode(thumbnail(page, 8));
+        // Declared one byte past the APP1 segment: no pre-screen, the full-size check decides
+        var result = validate(withExif(encode(page), thumbnail, thumbnail.length + 1));
+        page.release();
+        assertTrue(result.valid, result.message);
+        assertNotEquals("exif-thumbnail", result.sharpnessEngine);
+    }
+
+    @Test
+    void testThumbnailLargerThanImageIsNotDecoded() throws IOException {
+        Mat page = document(600);
+        // Blurry, but its header claims more pixels than the image: not a thumbnail, and not charged for
+        byte[] thumbnail = encode(thumbnail(page, 700, 8));
+        var result = validate(withExif(encode(page), thumbnail, thumbnail.length), 2.0);
+        page.release();
+        assertTrue(result.valid, result.message);
+        assertNotEquals("exif-thumbnail", result.sharpnessEngine);
+    }
+
+    private ImageValidationService.ValidationResult validate(byte[] jpeg) throws IOException {
+        return validate(jpeg, 6.67);
+    }
+
+    private ImageValidationService.ValidationResult validate(byte[] jpeg, double inches) throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "page.jpg", "image/jpeg", jpeg);
+        return service.validateImage(file, inches, inches, 300);
+    }
+
+    /**
+     * Inserts an EXIF segment (300 dpi, with the given thumbnail) right after SOI.
+     */
+    private static byte[] withExif(byte[] jpeg, byte[] thumbnail, int declaredThumbnailLength) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.writeBytes(JpegMetadataReaderTest.exif(ByteOrder.LITTLE_ENDIAN, 300, 1, thumbnail, declaredThumbnailLength));
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static Mat thumbnail(Mat page, double sigma) {
+        return thumbnail(page, 160, sigma);
+    }
+
+    private static Mat thumbnail(Mat page, int side, double sigma) {
+        Mat small = new Mat();
+        Imgproc.resize(page, small, new Size(side, side), 0, 0, Imgproc.INTER_AREA);
+        if (sigma > 0) {
+            Imgproc.GaussianBlur(small, small, new Size(0, 0), sigma);
+        }
+        return small;
+    }
+
+    private static Mat document(int side) {
+        Mat image = new Mat(side, side, CvType.CV_8UC3, new Scalar(235, 235, 235));
+        for (int y = 60; y < side; y += 40) {
+            Imgproc.putText(image, "Passport 1234567890 ABCDEFGH Passport 1234567890", new Point(20, y),
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.2, new Scalar(30, 30, 110), 2);
+        }
+        return image;
+    }
+
+    private static byte[] encode(Mat image) {
+        MatOfByte out = new MatOfByte();
+        Imgcodecs.imencode(".jpg", image, out, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 90));
+        return out.toArray();
+    }
+}
@@ -0,0 +1,75 @@
+package com.tvscs.imagevalidator;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.tvscs.imagevalidator.service.ImageValidationService;
+import com.tvscs.imagevalidator.service.blur.SharpnessMap;
+import com.tvscs.imagevalidator.service.blur.TiledSharpness;
+
+/**
+ * The tile map is position-dependent, so with the tile grid on the blur decode applies the EXIF orientation and the
+ * map is reported as the image is displayed.
+ */
+@SpringBootTest(properties = "app.image.blur-tile-grid=4")
+class TiledSharpnessOrientationTest {
+
+    @Autowired
+    private ImageValidationService service;
+
+    @Value("${app.image.blur-tile-min-contrast}")
+    private double minContrast;
+
+    @Test
+    void testTileMapOfRotatedJpegIsInDisplayOrientation() throws IOException {
+        // Stored 1200x800 with texture in the left quarter only; orientation 6 (rotate 90 CW) shows it as the top row
+        Mat stored = new Mat(800, 1200, CvType.CV_8UC1, new Scalar(128));
+        Mat textured = stored.colRange(0, 300);
+        Core.setRNGSeed(6);
+        Core.randu(textured, 0, 256);
+        MatOfByte encoded = new MatOfByte();
+        Imgcodecs.imencode(".jpg", stored, encoded, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 95));
+        stored.release();
+        byte[] jpeg = ImageValidationServiceTest.withExif(encoded.toArray(), 6);
+
+        MockMultipartFile file = new MockMultipartFile("image", "rotated.jpg", "image/jpeg", jpeg);
+        var result = service.validateImage(file, 800 / 300.0, 4.0, 300);
+        assertNotNull(result.tileVariances, result.message);
+        assertEquals(4, result.tileColumns);
+        assertEquals(4, result.tileRows);
+        for (int column = 0; column < 4; column++) {
+            assertNotNull(result.tileVariances[0][column], "top row, column " + column);
+            for (int row = 1; row < 4; row++) {
+                assertNull(result.tileVariances[row][column], "row " + row + ", column " + column);
+            }
+        }
+
+        // Same map as the oriented (display) decode, same global variance
+        Mat oriented = Imgcodecs.imdecode(new MatOfByte(jpeg), Imgcodecs.IMREAD_GRAYSCALE);
+        assertEquals(800, oriented.cols());
+        assertEquals(1200, oriented.rows());
+        SharpnessMap expected = TiledSharpness.compute(oriented, 4, null);
+        oriented.release();
+        assertEquals(expected.globalVariance(), result.blurVariance, 0);
+        Double[][] grid = expected.grid(minContrast);
+        for (int row = 0; row < 4; row++) {
+            assertArrayEquals(grid[row], result.tileVariances[row], "row " + row);
+        }
+    }
+}
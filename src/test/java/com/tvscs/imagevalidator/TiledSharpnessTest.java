@@ -0,0 +1,75 @@
+package com.tvscs.imagevalidator;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import com.tvscs.imagevalidator.service.blur.FusedLaplacian;
+import com.tvscs.imagevalidator.service.blur.SharpnessMap;
+import com.tvscs.imagevalidator.service.blur.TiledSharpness;
+
+class TiledSharpnessTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void testTilesAddUpToGlobalVariance() {
+        Mat doc = document(601, 487);
+        double expected = FusedLaplacian.variance(doc);
+        for (int grid : new int[]{1, 3, 4, 8}) {
+            SharpnessMap map = TiledSharpness.compute(doc, grid, ForkJoinPool.commonPool());
+            assertEquals(expected, map.globalVariance(), expected * 1e-12, "grid=" + grid);
+        }
+        doc.release();
+    }
+
+    @Test
+    void testSequentialPassMatchesPool() {
+        Mat doc = document(601, 487);
+        SharpnessMap pooled = TiledSharpness.compute(doc, 4, ForkJoinPool.commonPool());
+        SharpnessMap sequential = TiledSharpness.compute(doc, 4, null);
+        assertEquals(pooled.globalVariance(), sequential.globalVariance(), 0);
+        assertArrayEquals(pooled.contentVariances(8), sequential.contentVariances(8), 0);
+        doc.release();
+    }
+
+    @Test
+    void testPartialBlurLowersSharpTileFraction() {
+        Mat doc = document(800, 800);
+        // Smear the lower half only
+        Mat lower = doc.submat(400, 800, 0, 800);
+        Mat blurred = new Mat();
+        Imgproc.GaussianBlur(lower, blurred, new Size(0, 0), 3);
+        blurred.copyTo(lower);
+
+        SharpnessMap map = TiledSharpness.compute(doc, 4, ForkJoinPool.commonPool());
+        double[] content = map.contentVariances(8);
+        double fraction = SharpnessMap.fractionAtLeast(content, 100);
+        assertTrue(map.globalVariance() > 100, "global variance still passes");
+        assertTrue(fraction <= 0.6, "sharp fraction " + fraction);
+        blurred.release();
+        doc.release();
+    }
+
+    private static Mat document(int rows, int cols) {
+        Mat doc = new Mat(rows, cols, CvType.CV_8UC1, new Scalar(255));
+        for (int y = 30; y < rows; y += 30) {
+            Imgproc.putText(doc, "The quick brown fox jumps", new Point(10, y), Imgproc.FONT_HERSHEY_SIMPLEX, 0.8,
+                    new Scalar(0), 2);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,203 @@
+package com.tvscs.imagevalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.catalina.core.ApplicationPart;
+import org.apache.tomcat.util.http.fileupload.disk.DiskFileItem;
+import org.apache.tomcat.util.http.fileupload.disk.DiskFileItemFactory;
+import org.apache.tomcat.util.http.fileupload.util.FileItemHeadersImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+
+import com.tvscs.imagevalidator.service.io.UploadBufferPool;
+import com.tvscs.imagevalidator.service.io.UploadData;
+
+class UploadBufferPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBufferIsReusedByTheThread() throws IOException {
+        UploadBufferPool pool = pool(1 << 20);
+        byte[] first = bytes(200_000);
+        ByteBuffer buffer;
+        try (UploadData upload = pool.read(new ByteArrayInputStream(first), first.length, Long.MAX_VALUE, null)) {
+            assertTrue(upload.isComplete());
+            assertFalse(upload.isMapped());
+            assertContent(first, upload.data());
+            buffer = upload.data();
+        }
+        byte[] second = bytes(1000);
+        try (UploadData upload = pool.read(new ByteArrayInputStream(second), second.length, Long.MAX_VALUE, null)) {
+            assertSame(buffer, upload.data());
+            assertContent(second, upload.data());
+        }
+    }
+
+    @Test
+    void testWrongSizeHintGrowsBuffer() throws IOException {
+        UploadBufferPool pool = pool(1 << 20);
+        byte[] body = bytes(300_000);
+        for (long hint : new long[]{-1, 10, 100_000}) {
+            try (UploadData upload = pool.read(new ByteArrayInputStream(body), hint, Long.MAX_VALUE, null)) {
+                assertContent(body, upload.data());
+            }
+        }
+    }
+
+    @Test
+    void testLargeBufferIsNotRetained() throws IOException {
+        UploadBufferPool pool = pool(128 * 1024);
+        byte[] body = bytes(500_000);
+        ByteBuffer buffer;
+        try (UploadData upload = pool.read(new ByteArrayInputStream(body), body.length, Long.MAX_VALUE, null)) {
+            buffer = upload.data();
+        }
+        try (UploadData upload = pool.read(new ByteArrayInputStream(body), body.length, Long.MAX_VALUE, null)) {
+            assertNotSame(buffer, upload.data());
+            assertContent(body, upload.data());
+        }
+    }
+
+    @Test
+    void testInspectorStopsTransferEarly() throws IOException {
+        UploadBufferPool pool = pool(1 << 20);
+        byte[] body = bytes(1 << 20);
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        try (UploadData upload = pool.read(in, body.length, Long.MAX_VALUE, seen -> seen.remaining() < 16)) {
+            assertFalse(upload.isComplete());
+            assertTrue(upload.data().limit() >= 16);
+            assertTrue(in.available() > 0, "rest of the body is left unread");
+        }
+    }
+
+    @Test
+    void testInspectorStopsEarlyWithLargePooledBuffer() throws IOException {
+        UploadBufferPool pool = pool(4 << 20);
+        byte[] large = bytes(2 << 20);
+        try (UploadData upload = pool.read(new ByteArrayInputStream(large), large.length, Long.MAX_VALUE, null)) {
+            assertTrue(upload.isComplete());
+        }
+        // The retained buffer holds the whole body, yet reads stay in small steps while the inspector decides
+        byte[] body = bytes(1 << 20);
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        try (UploadData upload = pool.read(in, body.length, Long.MAX_VALUE, seen -> seen.remaining() < 16)) {
+            assertFalse(upload.isComplete());
+            assertTrue(in.available() > body.length / 2, "rest of the body is left unread");
+        }
+        // Read to the end through the widening window
+        try (UploadData upload = pool.read(new ByteArrayInputStream(body), body.length, Long.MAX_VALUE, seen -> true)) {
+            assertTrue(upload.isComplete());
+            assertContent(body, upload.data());
+        }
+    }
+
+    @Test
+    void testBodyOverLimitIsRejected() {
+        UploadBufferPool pool = pool(1 << 20);
+        byte[] body = bytes(100_000);
+        assertThrows(MaxUploadSizeExceededException.class,
+                () -> pool.read(new ByteArrayInputStream(body), body.length, 50_000, null));
+        // Undeclared length: detected while reading
+        assertThrows(MaxUploadSizeExceededException.class,
+                () -> pool.read(new ByteArrayInputStream(body), -1, 50_000, null));
+    }
+
+    @Test
+    void testUploadBelowSpillThresholdIsBuffered() throws IOException {
+        UploadBufferPool pool = pool(1 << 20);
+        byte[] body = bytes(100_000);
+        try (UploadData upload = pool.open(new MockMultipartFile("image", "small.jpg", "image/jpeg", body))) {
+            assertFalse(upload.isMapped());
+            assertContent(body, upload.data());
+        }
+    }
+
+    @Test
+    void testSpilledUploadIsMovedAndMapped() throws Exception {
+        Path spillDir = Files.createDirectory(tempDir.resolve("container"));
+        Path mmapDir = Files.createDirectory(tempDir.resolve("mapped"));
+        byte[] body = bytes(3 << 20);
+        // The container's own multipart part: written to a spill file, exposed through Spring's StandardMultipartFile
+        DiskFileItem item = (DiskFileItem) new DiskFileItemFactory(0, spillDir.toFile())
+                .createItem("image", "image/jpeg", false, "large.jpg");
+        try (OutputStream out = item.getOutputStream()) {
+            out.write(body);
+        }
+        FileItemHeadersImpl headers = new FileItemHeadersImpl();
+        headers.addHeader("content-disposition", "form-data; name=\"image\"; filename=\"large.jpg\"");
+        item.setHeaders(headers);
+        Path spillFile = item.getStoreLocation().toPath();
+        Object spillFileKey = Files.readAttributes(spillFile, BasicFileAttributes.class).fileKey();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/validate");
+        request.setContentType("multipart/form-data; boundary=x");
+        request.addPart(new ApplicationPart(item, spillDir.toFile()));
+        MultipartFile file = new StandardMultipartHttpServletRequest(request).getFile("image");
+
+        UploadBufferPool pool = pool(1 << 20);
+        ReflectionTestUtils.setField(pool, "mmapDir", mmapDir.toString());
+        try (UploadData upload = pool.open(file)) {
+            assertTrue(upload.isMapped());
+            assertContent(body, upload.data());
+            // Renamed, not copied: the spill file is gone and the mapped file is the same inode
+            assertFalse(Files.exists(spillFile));
+            List<Path> mapped = list(mmapDir);
+            assertEquals(1, mapped.size());
+            assertEquals(spillFileKey, Files.readAttributes(mapped.get(0), BasicFileAttributes.class).fileKey());
+        }
+        assertTrue(list(mmapDir).isEmpty(), "mapped file is deleted on close");
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+
+    static UploadBufferPool pool(int maxRetainedBytes) {
+        UploadBufferPool pool = new UploadBufferPool();
+        ReflectionTestUtils.setField(pool, "maxRetainedBytes", maxRetainedBytes);
+        ReflectionTestUtils.setField(pool, "spillThreshold", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(pool, "mmapDir", "");
+        return pool;
+    }
+
+    static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    static void assertContent(byte[] expected, ByteBuffer data) {
+        assertEquals(0, data.position());
+        assertEquals(expected.length, data.limit());
+        byte[] actual = new byte[expected.length];
+        data.duplicate().get(actual);
+        assertTrue(Arrays.equals(expected, actual), "content differs");
+    }
+}